@@ -0,0 +1,110 @@
+package com.checkmarx.jenkins;
+
+import hudson.init.Terminator;
+import hudson.model.Run;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the scans whose CLI process is still running, so they can be cancelled on the server
+ * as soon as the build is aborted, times out or the controller shuts down. Scans the build can reattach to
+ * after a restart are left running on shutdown.
+ */
+public final class ActiveScans {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ActiveScans.class.getName());
+
+    private static final Map<String, Cancellation> SCANS = new ConcurrentHashMap<>();
+    private static final Set<String> KEPT_ON_SHUTDOWN = ConcurrentHashMap.newKeySet();
+
+    private ActiveScans() {
+    }
+
+    public static void register(String scanId, Cancellation cancellation) {
+        register(scanId, cancellation, true);
+    }
+
+    /**
+     * @param cancelOnShutdown false to leave the scan running when the controller shuts down, for a build that
+     *                         reattaches to it afterwards
+     */
+    public static void register(String scanId, Cancellation cancellation, boolean cancelOnShutdown) {
+        SCANS.put(scanId, cancellation);
+        if (cancelOnShutdown) {
+            KEPT_ON_SHUTDOWN.remove(scanId);
+        } else {
+            KEPT_ON_SHUTDOWN.add(scanId);
+        }
+    }
+
+    /**
+     * @return true when the run is a pipeline whose state survives a controller restart, so it resumes and can
+     * reattach to its scan; false for freestyle builds and for pipelines that are performance-optimized or do not
+     * resume
+     */
+    public static boolean isResumable(Run<?, ?> run) {
+        if (!(run instanceof FlowExecutionOwner.Executable)) {
+            return false;
+        }
+        FlowExecutionOwner owner = ((FlowExecutionOwner.Executable) run).asFlowExecutionOwner();
+        FlowExecution execution = owner != null ? owner.getOrNull() : null;
+        return execution != null
+                && !execution.isResumeBlocked()
+                && execution.getDurabilityHint().isPersistWithEveryStep();
+    }
+
+    public static void unregister(String scanId) {
+        SCANS.remove(scanId);
+        KEPT_ON_SHUTDOWN.remove(scanId);
+    }
+
+    /**
+     * Cancels the scan on the server, at most once per registration.
+     *
+     * @return true when the scan was registered and the cancellation was sent
+     */
+    public static boolean cancel(String scanId) throws IOException, InterruptedException {
+        Cancellation cancellation = SCANS.remove(scanId);
+        KEPT_ON_SHUTDOWN.remove(scanId);
+        if (cancellation == null) {
+            return false;
+        }
+        cancellation.cancel();
+        return true;
+    }
+
+    @Terminator
+    public static void cancelAll() {
+        List<String> scanIds = new ArrayList<>(SCANS.keySet());
+        for (String scanId : scanIds) {
+            if (KEPT_ON_SHUTDOWN.contains(scanId)) {
+                LOG.info("Leaving scan {} running on controller shutdown, the build reattaches to it", scanId);
+                continue;
+            }
+            try {
+                if (cancel(scanId)) {
+                    LOG.info("Cancelled scan {} on controller shutdown", scanId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.warn("Could not cancel scan {} on controller shutdown", scanId, e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Cancellation {
+        void cancel() throws IOException, InterruptedException;
+    }
+}
@@ -1,9 +1,11 @@
 package com.checkmarx.jenkins;
 
+import com.checkmarx.ast.results.ResultsSummary;
 import com.checkmarx.ast.wrapper.CxException;
 import com.checkmarx.jenkins.credentials.CheckmarxApiToken;
 import com.checkmarx.jenkins.exception.CheckmarxException;
 import com.checkmarx.jenkins.logger.CxLoggerAdapter;
+import com.checkmarx.jenkins.logger.CxScanOutputStream;
 import com.checkmarx.jenkins.model.ScanConfig;
 import com.checkmarx.jenkins.tools.CheckmarxInstallation;
 import com.cloudbees.plugins.credentials.CredentialsMatchers;
@@ -26,6 +28,7 @@ import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import jenkins.model.Jenkins;
 import jenkins.tasks.SimpleBuildStep;
+import jenkins.util.SystemProperties;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import net.sf.json.JSONObject;
@@ -37,13 +40,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Optional;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.cloudbees.plugins.credentials.CredentialsMatchers.anyOf;
 import static com.cloudbees.plugins.credentials.CredentialsMatchers.withId;
@@ -58,11 +65,20 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
 
     public static final String GIT_BRANCH = "GIT_BRANCH";
     public static final String GIT_BRANCH_VAR = "${GIT_BRANCH}";
+    public static final String GIT_COMMIT = "GIT_COMMIT";
+    public static final int DEFAULT_FULL_SCAN_EVERY_BUILDS = 10;
+    public static final int DEFAULT_FULL_SAST_EVERY_BUILDS = 10;
+    public static final int DEFAULT_FULL_SAST_EVERY_DAYS = 7;
+    public static final int DEFAULT_FULL_SAST_CHANGED_FILES = 200;
     public static final String CVS_BRANCH = "CVS_BRANCH";
     public static final String CVS_BRANCH_VAR = "${CVS_BRANCH}";
     public static final String SVN_REVISION = "SVN_REVISION";
     public static final String SVN_REVISION_VAR = "${SVN_REVISION}";
     public static final String LOGFILE = "./output.log";
+    public static final String CLI_OUTPUT_FILE = "checkmarx-cli-output.log";
+    private static final String ADDITIONAL_REPORTS_DIRECTORY = "reports";
+    private static final int MAX_STATUS_FAILURES = 10;
+    private static final boolean KEEP_CLI_OUTPUT = SystemProperties.getBoolean(CheckmarxScanBuilder.class.getName() + ".keepCliOutput");
 
     private static final List<String> SENSITIVE_KEYS = Arrays.asList(
             "--apikey",
@@ -84,6 +100,20 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
     private String additionalOptions;
     private boolean useOwnAdditionalOptions;
     private boolean useOwnServerCredentials;
+    private boolean asyncMode;
+    private boolean reuseCommitScans;
+    private boolean skipUnchangedSources;
+    private boolean selectEnginesFromChanges;
+    // boxed, so jobs saved before these settings existed get the defaults rather than 0, which disables them
+    private Integer fullScanEveryBuilds;
+    private boolean sastIncremental;
+    private Integer fullSastEveryBuilds;
+    private Integer fullSastEveryDays;
+    private Integer fullSastChangedFiles;
+    private boolean sourceSnapshot;
+    private SourceSnapshot.Preset snapshotPreset = SourceSnapshot.Preset.NO_BUILD_OUTPUTS;
+    private String snapshotIncludes;
+    private String snapshotExcludes;
 
     @DataBoundConstructor
     public CheckmarxScanBuilder(boolean useOwnServerCredentials,
@@ -214,6 +244,158 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
     }
 
 
+    public boolean isAsyncMode() {
+        return asyncMode;
+    }
+
+    /**
+     * Submits the scan without waiting for the server to finish it, releasing the executor. In a pipeline,
+     * {@code checkmarxWaitForScan} then waits for the scan from the controller and attaches its reports.
+     */
+    @DataBoundSetter
+    public void setAsyncMode(boolean asyncMode) {
+        this.asyncMode = asyncMode;
+    }
+
+    public boolean isReuseCommitScans() {
+        return reuseCommitScans;
+    }
+
+    /**
+     * Reuses the scan of the built commit run by any job of the same project with the same options, rather than
+     * scanning the commit again.
+     */
+    @DataBoundSetter
+    public void setReuseCommitScans(boolean reuseCommitScans) {
+        this.reuseCommitScans = reuseCommitScans;
+    }
+
+    public boolean isSkipUnchangedSources() {
+        return skipUnchangedSources;
+    }
+
+    /**
+     * Skips the scan when the sources have the same content digest as at the last successful scan of the same
+     * project and branch, reusing the results of that scan.
+     */
+    @DataBoundSetter
+    public void setSkipUnchangedSources(boolean skipUnchangedSources) {
+        this.skipUnchangedSources = skipUnchangedSources;
+    }
+
+    public boolean isSelectEnginesFromChanges() {
+        return selectEnginesFromChanges;
+    }
+
+    /**
+     * Runs only the scan engines the changes of the build call for: SAST for sources, SCA for dependency
+     * manifests, KICS for infrastructure as code.
+     */
+    @DataBoundSetter
+    public void setSelectEnginesFromChanges(boolean selectEnginesFromChanges) {
+        this.selectEnginesFromChanges = selectEnginesFromChanges;
+    }
+
+    public int getFullScanEveryBuilds() {
+        return fullScanEveryBuilds != null ? fullScanEveryBuilds : DEFAULT_FULL_SCAN_EVERY_BUILDS;
+    }
+
+    /**
+     * @param fullScanEveryBuilds runs all the engines every that many scans of the project branch when selecting
+     *                            engines from the changes, or never when 0
+     */
+    @DataBoundSetter
+    public void setFullScanEveryBuilds(int fullScanEveryBuilds) {
+        this.fullScanEveryBuilds = Math.max(0, fullScanEveryBuilds);
+    }
+
+    public boolean isSastIncremental() {
+        return sastIncremental;
+    }
+
+    /**
+     * Runs incremental SAST scans, with a full scan of the project branch every {@link #getFullSastEveryBuilds()}
+     * scans, every {@link #getFullSastEveryDays()} days or when a build changes {@link #getFullSastChangedFiles()}
+     * files or more.
+     */
+    @DataBoundSetter
+    public void setSastIncremental(boolean sastIncremental) {
+        this.sastIncremental = sastIncremental;
+    }
+
+    public int getFullSastEveryBuilds() {
+        return fullSastEveryBuilds != null ? fullSastEveryBuilds : DEFAULT_FULL_SAST_EVERY_BUILDS;
+    }
+
+    @DataBoundSetter
+    public void setFullSastEveryBuilds(int fullSastEveryBuilds) {
+        this.fullSastEveryBuilds = Math.max(0, fullSastEveryBuilds);
+    }
+
+    public int getFullSastEveryDays() {
+        return fullSastEveryDays != null ? fullSastEveryDays : DEFAULT_FULL_SAST_EVERY_DAYS;
+    }
+
+    @DataBoundSetter
+    public void setFullSastEveryDays(int fullSastEveryDays) {
+        this.fullSastEveryDays = Math.max(0, fullSastEveryDays);
+    }
+
+    public int getFullSastChangedFiles() {
+        return fullSastChangedFiles != null ? fullSastChangedFiles : DEFAULT_FULL_SAST_CHANGED_FILES;
+    }
+
+    @DataBoundSetter
+    public void setFullSastChangedFiles(int fullSastChangedFiles) {
+        this.fullSastChangedFiles = Math.max(0, fullSastChangedFiles);
+    }
+
+    public boolean isSourceSnapshot() {
+        return sourceSnapshot;
+    }
+
+    /**
+     * Uploads a zip of the files tracked by git, written on the agent, instead of the whole workspace.
+     */
+    @DataBoundSetter
+    public void setSourceSnapshot(boolean sourceSnapshot) {
+        this.sourceSnapshot = sourceSnapshot;
+    }
+
+    public SourceSnapshot.Preset getSnapshotPreset() {
+        return snapshotPreset != null ? snapshotPreset : SourceSnapshot.Preset.NO_BUILD_OUTPUTS;
+    }
+
+    @DataBoundSetter
+    public void setSnapshotPreset(SourceSnapshot.Preset snapshotPreset) {
+        this.snapshotPreset = snapshotPreset;
+    }
+
+    public String getSnapshotIncludes() {
+        return snapshotIncludes;
+    }
+
+    /**
+     * @param snapshotIncludes comma or newline separated Ant patterns of the tracked files to upload, all by default
+     */
+    @DataBoundSetter
+    public void setSnapshotIncludes(String snapshotIncludes) {
+        this.snapshotIncludes = fixEmptyAndTrim(snapshotIncludes);
+    }
+
+    public String getSnapshotExcludes() {
+        return snapshotExcludes;
+    }
+
+    /**
+     * @param snapshotExcludes comma or newline separated Ant patterns of the tracked files not to upload, on top
+     *                         of those of the preset
+     */
+    @DataBoundSetter
+    public void setSnapshotExcludes(String snapshotExcludes) {
+        this.snapshotExcludes = fixEmptyAndTrim(snapshotExcludes);
+    }
+
     @SneakyThrows
     @Override
     public void perform(@NonNull Run<?, ?> run, @NonNull FilePath workspace, EnvVars envVars, @NonNull Launcher launcher, @NonNull TaskListener listener) {
@@ -232,6 +414,8 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
         PluginUtils.insertSecretsAsEnvVars(scanConfig, envVars);
 
         printConfiguration(envVars, descriptor, log);
+        Boolean allEngines = selectEngines(run, scanConfig);
+        Boolean incrementalSast = selectSastMode(run, scanConfig);
 
         if (!getUseOwnServerCredentials()) checkmarxInstallation = descriptor.getCheckmarxInstallation();
         //// Check for required version of CLI
@@ -271,107 +455,164 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
             return;
         }
 
-        final List<String> argumentsForCommand = PluginUtils.submitScanDetailsToWrapper(scanConfig, checkmarxCliExecutable, this.log);
-        ArgumentListBuilder arguments = new ArgumentListBuilder();
+        final String effectiveCredentialsId = getUseOwnServerCredentials() ? getCredentialsId() : descriptor.getCredentialsId();
+        final String installationName = checkmarxInstallation;
+        // the step is not resumed after a controller restart, but a durable pipeline wrapping it in retry runs it
+        // again and reattaches to the scan, so that scan is left running on shutdown; any other build is not run again
+        final boolean reattachable = ActiveScans.isResumable(run);
         FilePath tempDir = workspace.createTempDir("cx", "");
-        ByteArrayOutputStream fos = new ByteArrayOutputStream();
-        arguments.add(argumentsForCommand);
-
         int exitCode = 0;
+        String scanId;
+
+        CheckmarxScanStateAction state = CheckmarxScanStateAction.findInFlight(run, scanConfig);
+        boolean reattach = state != null;
+        String branchKey = !reattach && isSkipUnchangedSources() && !isAsyncMode() ? CheckmarxScanHistory.branchKey(scanConfig) : null;
+        SourceManifest manifest = branchKey != null ? buildManifest(workspace, scanConfig) : null;
+        String unchangedScanId = manifest != null ? CheckmarxScanHistory.get().findUnchanged(branchKey, manifest.getDigest()) : null;
+        String commitKey = reattach || unchangedScanId != null ? null : commitKey(scanConfig, envVars);
+        String reusedScanId = commitKey != null ? CheckmarxScanHistory.get().reuseOrClaim(commitKey) : null;
         try {
-            exitCode = launcher.launch().cmds(arguments).envs(envVars).stdout(
-                    // Writing stdout to file
-                    new OutputStream() {
-                        @Override
-                        public void write(int b) throws IOException {
-                            fos.write(b);
-                            listener.getLogger().write(b);
+            if (reattach) {
+                scanId = state.getScanId();
+                log.info("Reattaching to scan {} started earlier by this build", scanId);
+                if (!awaitScan(scanId, scanConfig, checkmarxCliExecutable, launcher, envVars, listener)) {
+                    // a retry of the build must start a new scan instead of reattaching to this one
+                    state.setPhase(run, CheckmarxScanStateAction.Phase.FAILED);
+                    run.setResult(Result.FAILURE);
+                    throw new AbortException("Scan Failed");
+                }
+            } else if (unchangedScanId != null) {
+                scanId = unchangedScanId;
+                log.info("The {} source files did not change since scan {}, skipping the scan and reusing its results", manifest.getFileCount(), scanId);
+                state = CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction(scanId, scanConfig, effectiveCredentialsId, installationName, false));
+            } else if (reusedScanId != null) {
+                scanId = reusedScanId;
+                log.info("Reusing scan {} of commit {}", scanId, envVars.get(GIT_COMMIT));
+                state = CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction(scanId, scanConfig, effectiveCredentialsId, installationName, false));
+                if (manifest != null) {
+                    CheckmarxScanHistory.get().recordSources(branchKey, scanId, manifest.getDigest());
+                }
+            } else {
+                if (isSourceSnapshot()) {
+                    createSnapshot(workspace, tempDir, scanConfig);
+                }
+                final List<String> argumentsForCommand = PluginUtils.submitScanDetailsToWrapper(scanConfig, checkmarxCliExecutable, this.log);
+                ArgumentListBuilder arguments = new ArgumentListBuilder();
+                CxScanOutputStream cliOutput = new CxScanOutputStream(listener.getLogger(), openRawCliLog(run)) {
+                    @Override
+                    protected void onScanId(String scanId) {
+                        CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction(scanId, scanConfig, effectiveCredentialsId, installationName, isAsyncMode()));
+                        boolean saved = false;
+                        try {
+                            run.save();
+                            saved = true;
+                        } catch (IOException e) {
+                            log.warn("Could not save the id of scan {} with the build: {}", scanId, e.getMessage());
                         }
+                        // without the saved state the build cannot find the scan again, so it is cancelled on shutdown
+                        ActiveScans.register(scanId, () -> cancelScan(scanId, scanConfig, checkmarxCliExecutable, launcher, envVars, listener), !(reattachable && saved));
+                    }
+                };
+                arguments.add(argumentsForCommand);
+                if (isAsyncMode()) {
+                    arguments.add(PluginUtils.ASYNC);
+                }
 
-                        @Override
-                        public void flush() throws IOException {
-                            super.flush();
-                            fos.flush();
-                            listener.getLogger().flush();
-                        }
+                // only a scan that passed its policies is reused by other builds
+                boolean passed = false;
+                ScanSlots.Slot slot = acquireSlot(descriptor.findThrottle(scanConfig), envVars);
+                try {
+                    exitCode = launcher.launch().cmds(arguments).envs(envVars).stdout(cliOutput).join();
+                    cliOutput.close();
 
-                        @Override
-                        public void close() throws IOException {
-                            super.close();
-                            fos.close();
-                            listener.getLogger().close();
-                        }
-                    }).join();
+                    log.error(String.format("Exit code from AST-CLI: %s", exitCode));
+                    log.info("Start to check for policy violations in the log file");
 
-            log.error(String.format("Exit code from AST-CLI: %s", exitCode));
-            String logFile = fos.toString(String.valueOf(StandardCharsets.UTF_8));
-            log.info("Start to check for policy violations in the log file");
+                    if (cliOutput.isPolicyViolated()) {
+                        log.info("Setting build result to FAILURE due to policy violation");
+                        run.setResult(Result.FAILURE);
+                        throw new AbortException("Pipeline failed due to Policy Management Violation detected in scan results and break build set to true.");
+                    }
+                    passed = exitCode == 0;
 
-            if (PluginUtils.isPolicyViolated(logFile)) {
-                log.info("Setting build result to FAILURE due to policy violation");
-                run.setResult(Result.FAILURE);
-                throw new AbortException("Pipeline failed due to Policy Management Violation detected in scan results and break build set to true.");
-            }
+                } catch (InterruptedException interruptedException) {
+                    String startedScanId = cliOutput.getScanId();
+                    if (!startedScanId.isEmpty()) {
+                        ActiveScans.cancel(startedScanId);
+                    }
+                    run.setResult(Result.ABORTED);
+                } catch (Exception e) {
+                    log.info(e.getMessage());
+                    run.setResult(Result.FAILURE);
+                } finally {
+                    if (slot != null) {
+                        slot.close();
+                    }
+                    cliOutput.close();
+                    if (!cliOutput.getScanId().isEmpty()) {
+                        ActiveScans.unregister(cliOutput.getScanId());
+                    }
+                }
+                scanId = cliOutput.getScanId();
 
-        } catch (InterruptedException interruptedException) {
-            String logFile = fos.toString(String.valueOf(StandardCharsets.UTF_8));
-            String scanId = PluginUtils.getScanIdFromLogFile(logFile);
-            if (!scanId.isEmpty()) {
-                log.info("Cancelling scan with id: {}", scanId);
-                launcher.launch().cmds(PluginUtils.scanCancel(UUID.fromString(scanId), scanConfig, checkmarxCliExecutable, this.log)).envs(envVars).stdout(listener.getLogger()).join();
-                log.info("Successfully canceled scan with id: {}", scanId);
+                if (scanId.isEmpty()) {
+                    log.error("Scan ID is empty");
+                    run.setResult(Result.FAILURE);
+                    throw new AbortException("Scan Failed");
+                }
+
+                if (allEngines != null && exitCode == 0) {
+                    CheckmarxScanHistory.get().recordEngineScan(CheckmarxScanHistory.baselineKey(scanConfig), scanId, allEngines);
+                }
+                if (isAsyncMode()) {
+                    tempDir.deleteRecursive();
+                    if (exitCode != 0) {
+                        run.setResult(Result.FAILURE);
+                        throw new AbortException("Scan Failed");
+                    }
+                    log.info("Scan {} submitted asynchronously, use checkmarxWaitForScan to wait for its results", scanId);
+                    return;
+                }
+                if (commitKey != null && passed) {
+                    CheckmarxScanHistory.get().complete(commitKey, scanId);
+                }
+                if (manifest != null && passed) {
+                    CheckmarxScanHistory.get().recordSources(branchKey, scanId, manifest.getDigest());
+                }
+                if (incrementalSast != null && exitCode == 0) {
+                    CheckmarxScanHistory.get().recordSastScan(CheckmarxScanHistory.baselineKey(scanConfig), scanId, incrementalSast);
+                }
+                state = CheckmarxScanStateAction.find(run, scanId);
+            }
+        } finally {
+            if (commitKey != null && reusedScanId == null) {
+                // releases the claim of a scan that was not recorded, a no-op otherwise
+                CheckmarxScanHistory.get().abandon(commitKey);
             }
-            run.setResult(Result.ABORTED);
-        } catch (Exception e) {
-            log.info(e.getMessage());
-            run.setResult(Result.FAILURE);
         }
-        String logFile = fos.toString(String.valueOf(StandardCharsets.UTF_8));
-        String scanId = PluginUtils.getScanIdFromLogFile(logFile);
 
-        if (scanId.isEmpty()) {
-            log.error("Scan ID is empty");
-            run.setResult(Result.FAILURE);
-            throw new AbortException("Scan Failed");
+        if (state != null) {
+            state.setPhase(run, CheckmarxScanStateAction.Phase.REPORTING);
         }
 
-        ArgumentListBuilder htmlArguments = new ArgumentListBuilder();
-        ArgumentListBuilder jsonArguments = new ArgumentListBuilder();
+        ResultsSummary resultsSummary = null;
 
         try {
-            final List<String> htmlReportCommand = PluginUtils.generateHTMLReport(UUID.fromString(scanId), scanConfig, checkmarxCliExecutable, log);
-            htmlArguments.add(htmlReportCommand);
-            //Adding temp directory path name to command arguments
-            htmlArguments.add("--output-path");
-            htmlArguments.add(tempDir.getRemote());
-            //Adding output file name to command arguments
-            htmlArguments.add("--output-name");
-            htmlArguments.add(PluginUtils.CHECKMARX_AST_RESULTS);
-
-            launcher.launch().cmds(htmlArguments).envs(envVars).stdout(listener.getLogger()).join();
-
-            final List<String> jsonReportCommand = PluginUtils.generateJsonReport(UUID.fromString(scanId), scanConfig, checkmarxCliExecutable, log);
-            jsonArguments.add(jsonReportCommand);
-            //Adding temp directory path name to command arguments
-            jsonArguments.add("--output-path");
-            jsonArguments.add(tempDir.getRemote());
-            //Adding output file name to command arguments
-            jsonArguments.add("--output-name");
-            jsonArguments.add(PluginUtils.CHECKMARX_AST_RESULTS);
-
-            launcher.launch().cmds(jsonArguments).envs(envVars).stdout(listener.getLogger()).join();
+            List<String> additionalReportFormats = PluginUtils.additionalReportFormats(scanConfig.getAdditionalOptions());
+            generateReports(scanId, scanConfig, checkmarxCliExecutable, PluginUtils.mergeReportFormats(additionalReportFormats),
+                    tempDir, PluginUtils.CHECKMARX_AST_RESULTS, launcher, envVars, listener);
 
             //Getting created report files path
             FilePath htmlReportFilePath = tempDir.child(PluginUtils.CHECKMARX_AST_RESULTS_HTML);
             FilePath jsonReportFilePath = tempDir.child(PluginUtils.CHECKMARX_AST_RESULTS_JSON);
 
-            ArtifactArchiver artifactArchiverHtml = new ArtifactArchiver(workspace.toURI().relativize(htmlReportFilePath.toURI()).toString());
-            artifactArchiverHtml.perform(run, workspace, envVars, launcher, listener);
+            String reportArtifacts = workspace.toURI().relativize(htmlReportFilePath.toURI()) + "," + workspace.toURI().relativize(jsonReportFilePath.toURI());
+            ArtifactArchiver artifactArchiver = new ArtifactArchiver(reportArtifacts);
+            artifactArchiver.perform(run, workspace, envVars, launcher, listener);
 
-            ArtifactArchiver artifactArchiverJson = new ArtifactArchiver(workspace.toURI().relativize(jsonReportFilePath.toURI()).toString());
-            artifactArchiverJson.perform(run, workspace, envVars, launcher, listener);
+            resultsSummary = readResultsSummary(jsonReportFilePath);
 
-            saveInArtifactAdditionalReports(scanConfig, workspace, envVars, launcher, listener, run, tempDir);
+            saveInArtifactAdditionalReports(scanId, scanConfig, checkmarxCliExecutable, additionalReportFormats, tempDir, envVars, launcher, listener, run);
 
         } finally {
             //Deleting temporary directory to clean up the workspace env
@@ -379,8 +620,14 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
             tempDir.delete();
         }
 
-        if (run.getActions(CheckmarxScanResultsAction.class).isEmpty()) {
-            run.addAction(new CheckmarxScanResultsAction());
+        CheckmarxScanResultsAction resultsAction = run.getAction(CheckmarxScanResultsAction.class);
+        if (resultsAction == null) {
+            run.addAction(new CheckmarxScanResultsAction(resultsSummary));
+        } else if (resultsSummary != null) {
+            resultsAction.setResultsSummary(resultsSummary);
+        }
+        if (state != null) {
+            state.setPhase(run, CheckmarxScanStateAction.Phase.COMPLETED);
         }
         if (exitCode != 0) {
             run.setResult(Result.FAILURE);
@@ -391,63 +638,301 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
         }
     }
 
-    private void saveInArtifactAdditionalReports(ScanConfig scanConfig, FilePath workspace, EnvVars envVars, Launcher launcher, TaskListener listener, Run<?, ?> run, FilePath tempDir) {
-        if(scanConfig.getAdditionalOptions() == null || !scanConfig.getAdditionalOptions().contains("--report-format")){
-            return;
+    /**
+     * @return the key to look the scan of the built commit up with, or null when scans are not reused or the
+     * commit is unknown
+     */
+    private String commitKey(ScanConfig scanConfig, EnvVars envVars) {
+        if (!isReuseCommitScans() || isAsyncMode()) {
+            return null;
+        }
+        String commit = fixEmptyAndTrim(envVars.get(GIT_COMMIT));
+        if (commit == null) {
+            log.info("{} is not set, the scan of the commit cannot be reused", GIT_COMMIT);
+            return null;
+        }
+        return CheckmarxScanHistory.commitKey(scanConfig, commit);
+    }
+
+    /**
+     * Narrows the scan engines down to those the changes of the build call for, unless a full scan of the branch
+     * is due.
+     *
+     * @return whether all the configured engines run, or null when the engines are not selected
+     */
+    private Boolean selectEngines(Run<?, ?> run, ScanConfig scanConfig) {
+        if (!isSelectEnginesFromChanges()) {
+            return null;
+        }
+        if (!EngineSelection.hasScanTypes(scanConfig.getAdditionalOptions())) {
+            log.info("No {} in the additional arguments, running the scan engines configured for the tenant", EngineSelection.SCAN_TYPES);
+            return null;
+        }
+        CheckmarxScanHistory history = CheckmarxScanHistory.get();
+        String baselineKey = CheckmarxScanHistory.baselineKey(scanConfig);
+        List<String> changedPaths = EngineSelection.changedPaths(run);
+        int partialScans = history.getPartialEngineScans(baselineKey);
+        String fullScanReason = null;
+        if (history.getLastAllEnginesScan(baselineKey) < 0) {
+            fullScanReason = "no scan of the branch with all of them is known";
+        } else if (changedPaths == null || changedPaths.isEmpty()) {
+            fullScanReason = "the build has no recorded changes";
+        } else if (getFullScanEveryBuilds() > 0 && partialScans + 1 >= getFullScanEveryBuilds()) {
+            fullScanReason = partialScans + " scans ran with fewer engines since they all last ran";
+        }
+        if (fullScanReason != null) {
+            log.info("Running all the configured scan engines: {}", fullScanReason);
+            return true;
+        }
+
+        Set<String> engines = EngineSelection.requiredEngines(changedPaths);
+        String options = EngineSelection.applyToOptions(scanConfig.getAdditionalOptions(), engines);
+        if (options == null) {
+            log.info("None of the configured scan engines matches the {} changed files, running them all", changedPaths.size());
+            return true;
+        }
+        log.info("Running the {} scan engines for the {} changed files", String.join(",", engines), changedPaths.size());
+        boolean allSelectable = EngineSelection.SELECTABLE_ENGINES.stream()
+                .filter(engine -> EngineSelection.runsEngine(scanConfig.getAdditionalOptions(), engine))
+                .allMatch(engines::contains);
+        scanConfig.setAdditionalOptions(options);
+        return allSelectable;
+    }
+
+    /**
+     * Makes the SAST scan incremental unless the policy calls for a full one.
+     *
+     * @return whether the SAST scan is incremental, or null when SAST scans are not managed
+     */
+    private Boolean selectSastMode(Run<?, ?> run, ScanConfig scanConfig) {
+        if (!isSastIncremental()) {
+            return null;
+        }
+        if (isAsyncMode()) {
+            log.info("Incremental SAST scans are not managed for asynchronous scans, the additional arguments apply as given");
+            return null;
+        }
+        String options = IncrementalScanPolicy.removeIncrementalFlag(scanConfig.getAdditionalOptions());
+        scanConfig.setAdditionalOptions(options);
+        if (!EngineSelection.runsEngine(options, EngineSelection.SAST)) {
+            return null;
+        }
+
+        IncrementalScanPolicy policy = new IncrementalScanPolicy(getFullSastEveryBuilds(), getFullSastEveryDays(), getFullSastChangedFiles());
+        String fullScanReason = policy.fullScanReason(CheckmarxScanHistory.get(), CheckmarxScanHistory.baselineKey(scanConfig),
+                EngineSelection.changedPaths(run), System.currentTimeMillis());
+        if (fullScanReason != null) {
+            log.info("Running a full SAST scan: {}", fullScanReason);
+            return false;
+        }
+        log.info("Running an incremental SAST scan");
+        scanConfig.setAdditionalOptions((StringUtils.defaultString(options) + " " + IncrementalScanPolicy.SAST_INCREMENTAL).trim());
+        return true;
+    }
+
+    /**
+     * Points the scan to a snapshot of the tracked files when it can be created, to the source directory otherwise.
+     */
+    private void createSnapshot(FilePath workspace, FilePath tempDir, ScanConfig scanConfig) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        try {
+            SourceSnapshot snapshot = new FilePath(workspace.getChannel(), scanConfig.getSourceDirectory())
+                    .act(new SourceSnapshot.Creator(tempDir.getRemote(), SourceSnapshot.parsePatterns(snapshotIncludes), snapshotExcludePatterns()));
+            log.info("Uploading a snapshot of {} tracked files ({} KB), written in {} ms",
+                    snapshot.getFileCount(), snapshot.getSize() / 1024, System.currentTimeMillis() - start);
+            scanConfig.setSourceDirectory(snapshot.getArchive());
+        } catch (IOException e) {
+            log.warn("Could not create a snapshot of the tracked files, uploading the workspace: {}", e.getMessage());
+        }
+    }
+
+    private List<String> snapshotExcludePatterns() {
+        List<String> excludes = new ArrayList<>(getSnapshotPreset().getExcludes());
+        excludes.addAll(SourceSnapshot.parsePatterns(snapshotExcludes));
+        return excludes;
+    }
+
+    /**
+     * @return the digest of the sources to upload, the files of the snapshot when one is uploaded, or null when it
+     * cannot be computed
+     */
+    private SourceManifest buildManifest(FilePath workspace, ScanConfig scanConfig) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        try {
+            SourceManifest.Builder builder = isSourceSnapshot()
+                    ? new SourceManifest.Builder(SourceSnapshot.parsePatterns(snapshotIncludes), snapshotExcludePatterns())
+                    : new SourceManifest.Builder(PluginUtils.reportExcludePatterns(scanConfig));
+            SourceManifest manifest = new FilePath(workspace.getChannel(), scanConfig.getSourceDirectory()).act(builder);
+            log.info("Computed the digest of {} source files in {} ms", manifest.getFileCount(), System.currentTimeMillis() - start);
+            return manifest;
+        } catch (IOException e) {
+            log.warn("Could not compute the digest of the sources, scanning them: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for a free slot when a concurrent scan limit applies to the server and tenant of the scan. The slot is
+     * held while the CLI runs, so an asynchronous scan only holds it while its sources are uploaded.
+     *
+     * @return the slot to release once the CLI is done, or null without limit
+     */
+    private ScanSlots.Slot acquireSlot(@Nullable ScanThrottle throttle, EnvVars envVars) throws InterruptedException {
+        if (throttle == null) {
+            return null;
+        }
+        String key = throttle.getKey();
+        int limit = throttle.getMaxConcurrentScans();
+        if (ScanSlots.getRunning(key) >= limit) {
+            log.info("{} scans already running against {}, the limit is {}: waiting for a free slot", ScanSlots.getRunning(key), key, limit);
         }
-        String additionalOptions = scanConfig.getAdditionalOptions();
-        String formatTypes = extractOptionValue(additionalOptions, "--report-format");
-        String[] formats = formatTypes.split(",");
+        ScanSlots.Slot slot = ScanSlots.acquire(key, limit, ScanSlots.priorityOf(envVars));
+        if (slot.wasContended()) {
+            log.info("Waited {} s for a scan slot against {}", TimeUnit.MILLISECONDS.toSeconds(slot.getWaitedMillis()), key);
+        }
+        return slot;
+    }
 
-        for (String formatType : formats) {
+    /**
+     * Waits for a scan the CLI is no longer attached to, e.g. after the controller restarted or the agent
+     * disconnected while the scan ran on the server. The scan is polled with the CLI of the node of the build.
+     *
+     * @return true when the scan completed, false when it failed or was canceled
+     */
+    private boolean awaitScan(String scanId, ScanConfig scanConfig, String checkmarxCliExecutable, Launcher launcher, EnvVars envVars, TaskListener listener) throws IOException, InterruptedException, CheckmarxException {
+        int consecutiveFailures = 0;
+        while (true) {
+            String status;
             try {
-                String fileName = (additionalOptions.contains("--output-name")
-                        ? extractOptionValue(additionalOptions, "--output-name")
-                        : PluginUtils.defaultOutputName) + "." + formatType;
-
-                String outputPath = extractOptionValue(additionalOptions, "--output-path");
-                log.info("Output path: " + outputPath);
-                if(outputPath == null || outputPath.isEmpty()) {
-                    outputPath = workspace.getRemote();
+                status = scanStatus(scanId, scanConfig, checkmarxCliExecutable, launcher, envVars, listener);
+                consecutiveFailures = 0;
+            } catch (IOException | CheckmarxException e) {
+                if (++consecutiveFailures >= MAX_STATUS_FAILURES) {
+                    throw e;
                 }
-                else {
-                    workspace = new FilePath(new File(outputPath));
-                }
-                File fileToCopy = new File(outputPath, fileName);
+                log.warn("Could not check the status of scan {}, retrying: {}", scanId, e.getMessage());
+                status = null;
+            }
+            if (ScanFollowUp.isCompleted(status)) {
+                log.info("Scan {} finished with status {}", scanId, status);
+                return true;
+            }
+            if (ScanFollowUp.isFailed(status)) {
+                log.error("Scan {} finished with status {}", scanId, status);
+                return false;
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(CheckmarxWaitForScanStep.DEFAULT_POLL_INTERVAL_SECONDS));
+        }
+    }
 
-                if (fileToCopy.exists()) {
-                    createArchiveFile(tempDir, fileName, fileToCopy, run, workspace, envVars, launcher, listener);
-                }
-            } catch (Exception e) {
-                log.error(String.format("Error saving additional reports (%s format): %s", formatType, e.getMessage()));
+    private String scanStatus(String scanId, ScanConfig scanConfig, String checkmarxCliExecutable, Launcher launcher, EnvVars envVars, TaskListener listener) throws IOException, InterruptedException, CheckmarxException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int exitCode = launcher.launch().cmds(PluginUtils.scanShow(UUID.fromString(scanId), scanConfig, checkmarxCliExecutable))
+                .envs(envVars).stdout(output).stderr(listener.getLogger()).quiet(true).join();
+        if (exitCode != 0) {
+            throw new CheckmarxException(String.format("Looking scan %s up failed with exit code %d", scanId, exitCode));
+        }
+        return ScanFollowUp.parseStatus(output.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    private void cancelScan(String scanId, ScanConfig scanConfig, String checkmarxCliExecutable, Launcher launcher, EnvVars envVars, TaskListener listener) throws IOException, InterruptedException {
+        log.info("Cancelling scan with id: {}", scanId);
+        launcher.launch().cmds(PluginUtils.scanCancel(UUID.fromString(scanId), scanConfig, checkmarxCliExecutable, this.log)).envs(envVars).stdout(listener.getLogger()).join();
+        log.info("Successfully canceled scan with id: {}", scanId);
+    }
+
+    /**
+     * Opens the file the raw CLI output is spilled to, when enabled with the
+     * {@code com.checkmarx.jenkins.CheckmarxScanBuilder.keepCliOutput} system property.
+     */
+    private OutputStream openRawCliLog(Run<?, ?> run) {
+        if (!KEEP_CLI_OUTPUT) {
+            return null;
+        }
+        try {
+            return new BufferedOutputStream(Files.newOutputStream(new File(run.getRootDir(), CLI_OUTPUT_FILE).toPath()));
+        } catch (IOException e) {
+            log.warn("Could not create the CLI output file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ResultsSummary readResultsSummary(FilePath jsonReportFilePath) {
+        try {
+            if (!jsonReportFilePath.exists()) {
+                return null;
+            }
+            try (InputStream stream = jsonReportFilePath.read()) {
+                return CheckmarxScanResultsAction.parseResultsSummary(stream);
             }
+        } catch (Exception e) {
+            log.warn("Could not read the results summary: " + e.getMessage());
+            return null;
         }
     }
-    
-    private void createArchiveFile(FilePath tempDir, String fileName, File fileToCopy, Run<?, ?> run, FilePath workspace, EnvVars envVars, Launcher launcher, TaskListener listener) throws IOException, InterruptedException {
-            log.info("Copying file to workspace: " + tempDir.getRemote());
-            FilePath tempDirPath = tempDir.child(fileName);
-            new FilePath(fileToCopy).copyTo(tempDirPath);
-            ArtifactArchiver artifactArchiver = new ArtifactArchiver(tempDirPath.getName());
-            artifactArchiver.perform(run, workspace, envVars, launcher, listener);
+
+    /**
+     * Generates the reports of the scan in the given formats with a single CLI invocation.
+     */
+    private void generateReports(String scanId, ScanConfig scanConfig, String checkmarxCliExecutable, List<String> reportFormats,
+                                 FilePath outputDir, String outputName, Launcher launcher, EnvVars envVars, TaskListener listener) throws IOException, InterruptedException {
+        ArgumentListBuilder reportArguments = new ArgumentListBuilder();
+        reportArguments.add(PluginUtils.generateReports(UUID.fromString(scanId), scanConfig, checkmarxCliExecutable, log, reportFormats));
+        //Adding temp directory path name to command arguments
+        reportArguments.add("--output-path");
+        reportArguments.add(outputDir.getRemote());
+        //Adding output file name to command arguments
+        reportArguments.add(PluginUtils.OUTPUT_NAME);
+        reportArguments.add(outputName);
+
+        launcher.launch().cmds(reportArguments).envs(envVars).stdout(listener.getLogger()).join();
     }
 
-    private String extractOptionValue(String options, String optionKey) {
-        if (options.contains(optionKey)) {
-            String[] parts = options.split(optionKey, 2);
-            if (parts.length > 1) {
-                String remaining = parts[1].trim();
-                if (remaining.startsWith("\"")) {
-                    int endIndex = remaining.indexOf("\"", 1);
-                    if (endIndex > 0) {
-                        return remaining.substring(1, endIndex);
-                    }
+    /**
+     * Archives the reports requested with --report-format under the --output-name of the options. They are
+     * generated into the temporary directory along with the summaries, whatever the scan came from, so a reused
+     * scan gets its reports too and no stale report of an earlier build is picked up. The formats written to the
+     * same file as a summary are generated on their own.
+     */
+    private void saveInArtifactAdditionalReports(String scanId, ScanConfig scanConfig, String checkmarxCliExecutable, List<String> formatTypes,
+                                                 FilePath tempDir, EnvVars envVars, Launcher launcher, TaskListener listener, Run<?, ?> run) {
+        if (formatTypes.isEmpty()) {
+            return;
+        }
+        String outputName = PluginUtils.extractOptionValue(scanConfig.getAdditionalOptions(), PluginUtils.OUTPUT_NAME);
+        if (outputName.isEmpty()) {
+            outputName = PluginUtils.defaultOutputName;
+        }
+
+        List<String> reportFiles = new ArrayList<>();
+        try {
+            FilePath reportsDir = tempDir.child(ADDITIONAL_REPORTS_DIRECTORY);
+            reportsDir.mkdirs();
+            List<String> collidingFormats = new ArrayList<>(formatTypes);
+            collidingFormats.retainAll(PluginUtils.SUMMARY_COLLIDING_REPORT_FORMATS);
+            if (!collidingFormats.isEmpty()) {
+                generateReports(scanId, scanConfig, checkmarxCliExecutable, collidingFormats, reportsDir, outputName, launcher, envVars, listener);
+            }
+            for (String formatType : formatTypes) {
+                String fileName = outputName + "." + formatType;
+                FilePath generated = tempDir.child(PluginUtils.CHECKMARX_AST_RESULTS + "." + formatType);
+                if (generated.exists()) {
+                    generated.renameTo(reportsDir.child(fileName));
+                }
+                if (reportsDir.child(fileName).exists()) {
+                    reportFiles.add(fileName);
                 } else {
-                    return remaining.split(" ")[0];
+                    log.warn("The {} report was not generated", formatType);
                 }
             }
+            if (reportFiles.isEmpty()) {
+                return;
+            }
+            ArtifactArchiver artifactArchiver = new ArtifactArchiver(String.join(",", reportFiles));
+            artifactArchiver.perform(run, reportsDir, envVars, launcher, listener);
+        } catch (Exception e) {
+            log.error(String.format("Error saving additional reports (%s): %s", String.join(",", formatTypes), e.getMessage()));
         }
-        return "";
     }
 
     /**
@@ -610,6 +1095,7 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
         private String credentialsId;
         @Nullable
         private String additionalOptions;
+        private List<ScanThrottle> throttles = new ArrayList<>();
 
         @CopyOnWrite
         private volatile CheckmarxInstallation[] installations = new CheckmarxInstallation[0];
@@ -697,6 +1183,22 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
             this.checkmarxInstallation = checkmarxInstallation;
         }
 
+        public List<ScanThrottle> getThrottles() {
+            return throttles == null ? Collections.emptyList() : Collections.unmodifiableList(throttles);
+        }
+
+        public void setThrottles(List<ScanThrottle> throttles) {
+            this.throttles = throttles == null ? new ArrayList<>() : new ArrayList<>(throttles);
+        }
+
+        /**
+         * @return the first concurrent scan limit applying to the server and tenant of the scan, or null
+         */
+        @Nullable
+        public ScanThrottle findThrottle(ScanConfig scanConfig) {
+            return getThrottles().stream().filter(throttle -> throttle.matches(scanConfig)).findFirst().orElse(null);
+        }
+
         public boolean hasInstallationsAvailable() {
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Available Checkmarx installations: {}",
@@ -708,7 +1210,9 @@ public class CheckmarxScanBuilder extends Builder implements SimpleBuildStep {
 
         public boolean configure(StaplerRequest req, JSONObject formData) {
             JSONObject pluginData = formData.getJSONObject("checkmarx");
+            Object throttlesData = pluginData.remove("throttles");
             req.bindJSON(this, pluginData);
+            setThrottles(throttlesData == null ? null : req.bindJSONToList(ScanThrottle.class, throttlesData));
             save();
             return false;
         }
@@ -0,0 +1,384 @@
+package com.checkmarx.jenkins;
+
+import com.checkmarx.jenkins.model.ScanConfig;
+import hudson.Util;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-wide history of the scans run by all jobs, persisted in {@code $JENKINS_HOME/checkmarx-scan-history.xml}.
+ * It maps a commit, scanned with given options, to the completed scan of it, so the jobs building the same commit
+ * reuse one scan. Builds asking for a commit being scanned wait for that scan instead of starting their own.
+ * It also remembers per project and branch the digest of the sources of the last successful scan, so a build
+ * whose sources did not change reuses that scan, when the last full SAST scan of the branch ran and when all the
+ * configured engines last ran on it.
+ * Entries expire after {@link #DEFAULT_MAX_AGE_DAYS} days, since the server may have deleted the scan since.
+ */
+public class CheckmarxScanHistory {
+
+    private static final Logger LOGGER = Logger.getLogger(CheckmarxScanHistory.class.getName());
+
+    static final long DEFAULT_MAX_AGE_DAYS = SystemProperties.getLong(CheckmarxScanHistory.class.getName() + ".maxAgeDays", 14L);
+    static final int DEFAULT_MAX_ENTRIES = SystemProperties.getInteger(CheckmarxScanHistory.class.getName() + ".maxEntries", 5000);
+    static final long DEFAULT_CLAIM_TIMEOUT_MINUTES = SystemProperties.getLong(CheckmarxScanHistory.class.getName() + ".claimTimeoutMinutes", 120L);
+    private static final String STORE_FILE = "checkmarx-scan-history.xml";
+
+    private static volatile CheckmarxScanHistory instance;
+
+    private final File storeFile;
+    private final long maxAgeMillis;
+    private final int maxEntries;
+    private final long claimTimeoutMillis;
+    private final Map<String, Entry> commitScans = new ConcurrentHashMap<>();
+    private final Map<String, Entry> branchScans = new ConcurrentHashMap<>();
+    private final Map<String, Entry> sastBaselines = new ConcurrentHashMap<>();
+    private final Map<String, Entry> engineBaselines = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private boolean loaded;
+
+    /**
+     * @param storeFile where the history is persisted, or null to keep it in memory only
+     */
+    public CheckmarxScanHistory(File storeFile, long maxAgeMillis, int maxEntries) {
+        this(storeFile, maxAgeMillis, maxEntries, TimeUnit.MINUTES.toMillis(DEFAULT_CLAIM_TIMEOUT_MINUTES));
+    }
+
+    /**
+     * @param claimTimeoutMillis how long a build waits for the scan of another build before scanning itself
+     */
+    public CheckmarxScanHistory(File storeFile, long maxAgeMillis, int maxEntries, long claimTimeoutMillis) {
+        this.storeFile = storeFile;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxEntries = maxEntries;
+        this.claimTimeoutMillis = claimTimeoutMillis;
+    }
+
+    public static CheckmarxScanHistory get() {
+        CheckmarxScanHistory history = instance;
+        if (history == null) {
+            synchronized (CheckmarxScanHistory.class) {
+                if (instance == null) {
+                    Jenkins jenkins = Jenkins.getInstanceOrNull();
+                    instance = new CheckmarxScanHistory(jenkins != null ? new File(jenkins.getRootDir(), STORE_FILE) : null,
+                            TimeUnit.DAYS.toMillis(DEFAULT_MAX_AGE_DAYS), DEFAULT_MAX_ENTRIES);
+                }
+                history = instance;
+            }
+        }
+        return history;
+    }
+
+    /**
+     * @return the key of a commit scanned with the options of the configuration: the same project, server and
+     * additional options on the same commit give the same key, whatever the workspace and reports of the build
+     */
+    public static String commitKey(ScanConfig scanConfig, String commit) {
+        return scanConfig.getProjectName() + "@" + commit + "#" + optionsDigest(scanConfig);
+    }
+
+    /**
+     * @return the key of the branch of the project scanned with the options of the configuration
+     */
+    public static String branchKey(ScanConfig scanConfig) {
+        return scanConfig.getProjectName() + ":" + StringUtils.defaultString(scanConfig.getBranchName()) + "#" + optionsDigest(scanConfig);
+    }
+
+    /**
+     * @return the key of the branch of the project on the server, whatever the scan options
+     */
+    public static String baselineKey(ScanConfig scanConfig) {
+        return scanConfig.getProjectName() + ":" + StringUtils.defaultString(scanConfig.getBranchName()) + "#"
+                + sha256(StringUtils.defaultString(scanConfig.getServerUrl()) + "\n" + StringUtils.defaultString(scanConfig.getTenantName()));
+    }
+
+    /**
+     * Looks up the scan of a commit, waiting for it when another build is scanning the commit. When there is
+     * no such scan, the caller is expected to scan the commit itself and to report with {@link #complete} or
+     * {@link #abandon}, while the builds asking for the same key wait for it. A claim not reported within the
+     * claim timeout, e.g. of a build whose controller stopped, is taken over by a waiting build.
+     *
+     * @return the id of the completed scan of the commit, or null when the caller has to scan it
+     */
+    public String reuseOrClaim(String key) throws InterruptedException {
+        load();
+        while (true) {
+            Entry entry = commitScans.get(key);
+            if (entry != null && !isExpired(entry)) {
+                return entry.scanId;
+            }
+            CompletableFuture<String> claim = new CompletableFuture<>();
+            CompletableFuture<String> pending = inFlight.putIfAbsent(key, claim);
+            if (pending == null) {
+                return null;
+            }
+            try {
+                String scanId = pending.get(claimTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (scanId != null) {
+                    return scanId;
+                }
+            } catch (ExecutionException e) {
+                // claims are never completed exceptionally
+            } catch (TimeoutException e) {
+                LOGGER.log(Level.WARNING, "The scan of {0} was not reported in time, scanning it again", key);
+                if (inFlight.remove(key, pending)) {
+                    // the other builds waiting for the stale claim race for a new one
+                    pending.complete(null);
+                }
+            }
+            // the scan was abandoned, try to claim it
+        }
+    }
+
+    /**
+     * Records the completed scan of a claimed commit and hands it to the builds waiting for it.
+     */
+    public void complete(String key, String scanId) {
+        commitScans.put(key, new Entry(scanId, System.currentTimeMillis()));
+        prune();
+        save();
+        CompletableFuture<String> pending = inFlight.remove(key);
+        if (pending != null) {
+            pending.complete(scanId);
+        }
+    }
+
+    /**
+     * @return the last successful scan of the branch when its sources had the given digest, or null
+     */
+    public String findUnchanged(String branchKey, String sourcesDigest) {
+        load();
+        Entry entry = branchScans.get(branchKey);
+        return entry != null && !isExpired(entry) && sourcesDigest.equals(entry.sourcesDigest) ? entry.scanId : null;
+    }
+
+    /**
+     * Records the digest of the sources of a successful scan of the branch.
+     */
+    public void recordSources(String branchKey, String scanId, String sourcesDigest) {
+        load();
+        branchScans.put(branchKey, new Entry(scanId, System.currentTimeMillis(), sourcesDigest));
+        prune();
+        save();
+    }
+
+    /**
+     * @return when the last full SAST scan of the branch ran, or -1 when none is known
+     */
+    public long getLastFullSastScan(String baselineKey) {
+        load();
+        Entry entry = sastBaselines.get(baselineKey);
+        return entry != null && !isExpired(entry) ? entry.recordedAt : -1;
+    }
+
+    /**
+     * @return how many incremental SAST scans of the branch ran since its last full SAST scan
+     */
+    public int getIncrementalSastScans(String baselineKey) {
+        load();
+        Entry entry = sastBaselines.get(baselineKey);
+        return entry != null ? entry.incrementalScans : 0;
+    }
+
+    /**
+     * Records a successful SAST scan of the branch: a full scan becomes the new baseline, an incremental one is
+     * counted against the current baseline.
+     */
+    public void recordSastScan(String baselineKey, String scanId, boolean incremental) {
+        load();
+        Entry baseline = sastBaselines.get(baselineKey);
+        if (!incremental) {
+            sastBaselines.put(baselineKey, new Entry(scanId, System.currentTimeMillis(), null, 0));
+        } else if (baseline != null) {
+            sastBaselines.put(baselineKey, new Entry(baseline.scanId, baseline.recordedAt, null, baseline.incrementalScans + 1));
+        } else {
+            return;
+        }
+        prune();
+        save();
+    }
+
+    /**
+     * @return when all the configured engines last ran on the branch, or -1 when it is not known
+     */
+    public long getLastAllEnginesScan(String baselineKey) {
+        load();
+        Entry entry = engineBaselines.get(baselineKey);
+        return entry != null && !isExpired(entry) ? entry.recordedAt : -1;
+    }
+
+    /**
+     * @return how many scans of the branch ran with fewer engines since all of them last ran
+     */
+    public int getPartialEngineScans(String baselineKey) {
+        load();
+        Entry entry = engineBaselines.get(baselineKey);
+        return entry != null ? entry.incrementalScans : 0;
+    }
+
+    /**
+     * Records a scan of the branch: a scan with all the configured engines becomes the new baseline, one with
+     * fewer engines is counted against the current baseline.
+     */
+    public void recordEngineScan(String baselineKey, String scanId, boolean allEngines) {
+        load();
+        Entry baseline = engineBaselines.get(baselineKey);
+        if (allEngines) {
+            engineBaselines.put(baselineKey, new Entry(scanId, System.currentTimeMillis(), null, 0));
+        } else if (baseline != null) {
+            engineBaselines.put(baselineKey, new Entry(baseline.scanId, baseline.recordedAt, null, baseline.incrementalScans + 1));
+        } else {
+            return;
+        }
+        prune();
+        save();
+    }
+
+    /**
+     * Releases the claim on a commit the caller could not scan, so one of the builds waiting for it scans it.
+     */
+    public void abandon(String key) {
+        CompletableFuture<String> pending = inFlight.remove(key);
+        if (pending != null) {
+            pending.complete(null);
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.recordedAt > maxAgeMillis;
+    }
+
+    private void prune() {
+        prune(commitScans);
+        prune(branchScans);
+        prune(sastBaselines);
+        prune(engineBaselines);
+    }
+
+    private void prune(Map<String, Entry> entries) {
+        entries.values().removeIf(this::isExpired);
+        int excess = entries.size() - maxEntries;
+        if (excess > 0) {
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().recordedAt))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .forEach(entries::remove);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (storeFile == null || !storeFile.isFile()) {
+            return;
+        }
+        try {
+            Object stored = new XmlFile(storeFile).read();
+            if (stored instanceof Store) {
+                Store store = (Store) stored;
+                if (store.commits != null) {
+                    commitScans.putAll(store.commits);
+                }
+                if (store.branches != null) {
+                    branchScans.putAll(store.branches);
+                }
+                if (store.sastBaselines != null) {
+                    sastBaselines.putAll(store.sastBaselines);
+                }
+                if (store.engineBaselines != null) {
+                    engineBaselines.putAll(store.engineBaselines);
+                }
+            } else if (stored instanceof Map) {
+                // written before the branch scans were recorded
+                commitScans.putAll((Map<String, Entry>) stored);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not load the Checkmarx scan history", e);
+        }
+    }
+
+    private synchronized void save() {
+        if (storeFile == null) {
+            return;
+        }
+        try {
+            new XmlFile(storeFile).write(new Store(new HashMap<>(commitScans), new HashMap<>(branchScans), new HashMap<>(sastBaselines),
+                    new HashMap<>(engineBaselines)));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not persist the Checkmarx scan history", e);
+        }
+    }
+
+    private static String optionsDigest(ScanConfig scanConfig) {
+        return sha256(StringUtils.join(new String[]{
+                scanConfig.getServerUrl(), scanConfig.getTenantName(), PluginUtils.withoutPerBuildOptions(scanConfig.getAdditionalOptions())}, '\n'));
+    }
+
+    private static String sha256(String value) {
+        try {
+            return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String scanId;
+        private final long recordedAt;
+        private final String sourcesDigest;
+        private final int incrementalScans;
+
+        private Entry(String scanId, long recordedAt) {
+            this(scanId, recordedAt, null);
+        }
+
+        private Entry(String scanId, long recordedAt, String sourcesDigest) {
+            this(scanId, recordedAt, sourcesDigest, 0);
+        }
+
+        private Entry(String scanId, long recordedAt, String sourcesDigest, int incrementalScans) {
+            this.scanId = scanId;
+            this.recordedAt = recordedAt;
+            this.sourcesDigest = sourcesDigest;
+            this.incrementalScans = incrementalScans;
+        }
+    }
+
+    private static final class Store {
+
+        private final Map<String, Entry> commits;
+        private final Map<String, Entry> branches;
+        private final Map<String, Entry> sastBaselines;
+        private final Map<String, Entry> engineBaselines;
+
+        private Store(Map<String, Entry> commits, Map<String, Entry> branches, Map<String, Entry> sastBaselines,
+                      Map<String, Entry> engineBaselines) {
+            this.commits = commits;
+            this.branches = branches;
+            this.sastBaselines = sastBaselines;
+            this.engineBaselines = engineBaselines;
+        }
+    }
+}
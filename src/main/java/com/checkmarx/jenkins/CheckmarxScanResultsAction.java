@@ -1,28 +1,37 @@
 package com.checkmarx.jenkins;
 
 import com.checkmarx.ast.results.ResultsSummary;
-import com.checkmarx.jenkins.exception.CheckmarxException;
-import com.checkmarx.jenkins.tools.ProxyHttpClient;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.model.Run;
-import jenkins.model.Jenkins;
 import jenkins.model.RunAction2;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
-import org.apache.commons.io.IOUtils;
-import java.nio.file.Paths;
-import java.nio.file.Files;
-import java.nio.charset.Charset;
+import jenkins.util.VirtualFile;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URISyntaxException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class CheckmarxScanResultsAction implements RunAction2 {
 
+    private static final Logger LOGGER = Logger.getLogger(CheckmarxScanResultsAction.class.getName());
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
     private transient Run<?, ?> run;
+    /**
+     * Parsed once when the build finishes and persisted in build.xml.
+     * Builds recorded before it was persisted get it back-filled from the archived report on first access.
+     */
+    private volatile ResultsSummary resultsSummary;
+    private transient volatile boolean resultsSummaryLoaded;
+
+    public CheckmarxScanResultsAction() {
+    }
+
+    public CheckmarxScanResultsAction(ResultsSummary resultsSummary) {
+        this.resultsSummary = resultsSummary;
+    }
 
     public Run getRun() {
         return run;
@@ -53,37 +62,37 @@ public class CheckmarxScanResultsAction implements RunAction2 {
         return "scanResults";
     }
 
-    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    public void setResultsSummary(ResultsSummary resultsSummary) {
+        this.resultsSummary = resultsSummary;
+    }
+
     public ResultsSummary getResultsSummary() {
+        if (resultsSummary == null && !resultsSummaryLoaded && run != null) {
+            synchronized (this) {
+                if (resultsSummary == null && !resultsSummaryLoaded) {
+                    resultsSummary = loadResultsSummaryFromArtifacts();
+                    resultsSummaryLoaded = true;
+                }
+            }
+        }
+        return resultsSummary;
+    }
+
+    public static ResultsSummary parseResultsSummary(InputStream stream) throws IOException {
+        return OBJECT_MAPPER.readValue(stream, ResultsSummary.class);
+    }
+
+    private ResultsSummary loadResultsSummaryFromArtifacts() {
         for (Object artifact : run.getArtifacts()) {
             if (artifact instanceof Run.Artifact && ((Run.Artifact) artifact).getFileName().contains(PluginUtils.CHECKMARX_AST_RESULTS_JSON)) {
-                try {
-                    String artifactHref = ((Run.Artifact) artifact).getHref();
-                    String serverUrl = Jenkins.get().getRootUrl();
-                    String fullUrl = serverUrl + run.getUrl() + "artifact/" + artifactHref;
-                    OkHttpClient client = new ProxyHttpClient().getHttpClient(PluginUtils.getProxy(), 10000, 10000);
-                    Request request = new Request.Builder().url(fullUrl).build();
-                    Response response = client.newCall(request).execute();
-                    ResponseBody responseBody = response.body();
-                    InputStream stream = responseBody.byteStream();
-                    String json = IOUtils.toString(stream);
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    return objectMapper.readValue(json, ResultsSummary.class);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    try{
-                    byte[] encoded = Files.readAllBytes(Paths.get(((Run.Artifact) artifact).getFile().getCanonicalPath()));
-                    String json = new String(encoded, Charset.defaultCharset());
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    return objectMapper.readValue(json, ResultsSummary.class);
-                    }catch (Exception e1){
-                        e1.printStackTrace();
-                    }
+                VirtualFile file = run.getArtifactManager().root().child(((Run.Artifact) artifact).relativePath);
+                try (InputStream stream = file.open()) {
+                    return parseResultsSummary(stream);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not read the results summary of " + run.getFullDisplayName(), e);
                 }
             }
         }
         return null;
     }
 }
-
-
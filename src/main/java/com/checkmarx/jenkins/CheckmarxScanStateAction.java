@@ -0,0 +1,207 @@
+package com.checkmarx.jenkins;
+
+import com.checkmarx.jenkins.model.ScanConfig;
+import hudson.AbortException;
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Remembers the id of the scan started by a build as soon as the CLI prints it, along with the server settings
+ * needed to follow the scan up from the controller once the build released its executor. The state is saved
+ * with the run at every phase change, so a build retried after a controller restart or an agent disconnection
+ * reattaches to the scan still running on the server instead of starting a new one. A run holds one state per
+ * scan, e.g. a pipeline submitting several asynchronous scans before waiting for them.
+ */
+public class CheckmarxScanStateAction extends InvisibleAction {
+
+    public enum Phase {
+        /** The scan was created and runs on the server. */
+        SCANNING,
+        /** The scan finished and its reports are being generated. */
+        REPORTING,
+        /** The reports of the scan are attached to the run. */
+        COMPLETED,
+        /** The scan failed or was canceled on the server, a retry starts a new one. */
+        FAILED
+    }
+
+    private final String scanId;
+    private String projectName;
+    private String scanKey;
+    private String serverUrl;
+    private String baseAuthUrl;
+    private String tenantName;
+    private String credentialsId;
+    private String checkmarxInstallation;
+    private boolean async;
+    private List<String> additionalReportFormats;
+    private String reportOutputName;
+    private Phase phase;
+
+    public CheckmarxScanStateAction(String scanId) {
+        this.scanId = scanId;
+    }
+
+    public CheckmarxScanStateAction(String scanId, ScanConfig scanConfig, String credentialsId, String checkmarxInstallation, boolean async) {
+        this.scanId = scanId;
+        this.projectName = scanConfig.getProjectName();
+        this.scanKey = CheckmarxScanHistory.branchKey(scanConfig);
+        this.serverUrl = scanConfig.getServerUrl();
+        this.baseAuthUrl = scanConfig.getBaseAuthUrl();
+        this.tenantName = scanConfig.getTenantName();
+        this.credentialsId = credentialsId;
+        this.checkmarxInstallation = checkmarxInstallation;
+        this.async = async;
+        this.additionalReportFormats = PluginUtils.additionalReportFormats(scanConfig.getAdditionalOptions());
+        this.reportOutputName = StringUtils.defaultIfEmpty(
+                PluginUtils.extractOptionValue(scanConfig.getAdditionalOptions(), PluginUtils.OUTPUT_NAME), PluginUtils.defaultOutputName);
+        this.phase = Phase.SCANNING;
+    }
+
+    /**
+     * Adds the state of a scan to the run, next to the states of its other scans, replacing the state of the same
+     * scan if any.
+     *
+     * @return the given state
+     */
+    public static CheckmarxScanStateAction record(Run<?, ?> run, CheckmarxScanStateAction state) {
+        CheckmarxScanStateAction previous = find(run, state.getScanId());
+        if (previous != null) {
+            run.removeAction(previous);
+        }
+        run.addAction(state);
+        return state;
+    }
+
+    /**
+     * @return the state of the scan started by the run, or null
+     */
+    public static CheckmarxScanStateAction find(Run<?, ?> run, String scanId) {
+        for (CheckmarxScanStateAction state : run.getActions(CheckmarxScanStateAction.class)) {
+            if (state.getScanId().equals(scanId)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the last scan of the run that is still to be followed up for the configuration, or null
+     * @see #isInFlightFor(ScanConfig)
+     */
+    public static CheckmarxScanStateAction findInFlight(Run<?, ?> run, ScanConfig scanConfig) {
+        List<CheckmarxScanStateAction> states = run.getActions(CheckmarxScanStateAction.class);
+        for (int i = states.size() - 1; i >= 0; i--) {
+            if (states.get(i).isInFlightFor(scanConfig)) {
+                return states.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param scanId the asynchronous scan to look up, or null for the last one submitted by the run
+     * @return the state of the asynchronous scan
+     * @throws AbortException when the run did not submit such a scan
+     */
+    public static CheckmarxScanStateAction findAsync(Run<?, ?> run, String scanId) throws AbortException {
+        if (scanId != null) {
+            CheckmarxScanStateAction state = find(run, scanId);
+            if (state == null) {
+                throw new AbortException("Checkmarx scan " + scanId + " was not submitted by this run");
+            }
+            if (!state.isAsync()) {
+                throw new AbortException("Checkmarx scan " + scanId + " was not submitted asynchronously");
+            }
+            return state;
+        }
+        List<CheckmarxScanStateAction> states = run.getActions(CheckmarxScanStateAction.class);
+        for (int i = states.size() - 1; i >= 0; i--) {
+            if (states.get(i).isAsync()) {
+                return states.get(i);
+            }
+        }
+        throw new AbortException("No Checkmarx scan was submitted by this run, use checkmarxASTScanner with asyncMode: true first");
+    }
+
+    public String getScanId() {
+        return scanId;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    public String getBaseAuthUrl() {
+        return baseAuthUrl;
+    }
+
+    public String getTenantName() {
+        return tenantName;
+    }
+
+    public String getCredentialsId() {
+        return credentialsId;
+    }
+
+    public String getCheckmarxInstallation() {
+        return checkmarxInstallation;
+    }
+
+    /**
+     * @return true when the scan was submitted with {@code asyncMode} and is left to {@code checkmarxWaitForScan}
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * @return the report formats asked for with {@code --report-format}, besides the summaries
+     */
+    public List<String> getAdditionalReportFormats() {
+        return additionalReportFormats != null ? Collections.unmodifiableList(additionalReportFormats) : Collections.emptyList();
+    }
+
+    /**
+     * @return the file name, without extension, of the reports asked for with {@code --report-format}
+     */
+    public String getReportOutputName() {
+        return StringUtils.defaultIfEmpty(reportOutputName, PluginUtils.defaultOutputName);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Moves the scan to the given phase and saves the run, so the phase survives a controller restart.
+     */
+    public void setPhase(Run<?, ?> run, Phase phase) throws IOException {
+        this.phase = phase;
+        run.save();
+    }
+
+    /**
+     * @return true when the scan of the same project branch, on the same server and with the same options, is
+     * still to be followed up, i.e. it can be reattached to instead of scanning again
+     */
+    public boolean isInFlightFor(ScanConfig scanConfig) {
+        return !async
+                && credentialsId != null
+                && (phase == Phase.SCANNING || phase == Phase.REPORTING)
+                && StringUtils.equals(projectName, scanConfig.getProjectName())
+                && StringUtils.equals(serverUrl, scanConfig.getServerUrl())
+                && StringUtils.equals(tenantName, scanConfig.getTenantName())
+                // states saved before the key was recorded only tell the project
+                && (scanKey == null || scanKey.equals(CheckmarxScanHistory.branchKey(scanConfig)));
+    }
+}
@@ -0,0 +1,214 @@
+package com.checkmarx.jenkins;
+
+import com.checkmarx.jenkins.logger.CxLoggerAdapter;
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.util.Timer;
+import lombok.NonNull;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static hudson.Util.fixEmptyAndTrim;
+
+/**
+ * Waits for a scan submitted with {@code checkmarxASTScanner asyncMode: true}, then attaches its reports to the
+ * run. The step needs no executor: the scan is polled from the controller, so it can run outside {@code node}.
+ * <pre>
+ * node { checkmarxASTScanner asyncMode: true, projectName: 'app' }
+ * checkmarxWaitForScan()
+ * </pre>
+ */
+public class CheckmarxWaitForScanStep extends Step {
+
+    static final int DEFAULT_POLL_INTERVAL_SECONDS = 30;
+
+    private String scanId;
+    private int pollIntervalSeconds = DEFAULT_POLL_INTERVAL_SECONDS;
+
+    @DataBoundConstructor
+    public CheckmarxWaitForScanStep() {
+    }
+
+    public String getScanId() {
+        return scanId;
+    }
+
+    /**
+     * @param scanId the scan to wait for, by default the last scan submitted by the run
+     */
+    @DataBoundSetter
+    public void setScanId(String scanId) {
+        this.scanId = fixEmptyAndTrim(scanId);
+    }
+
+    public int getPollIntervalSeconds() {
+        return pollIntervalSeconds;
+    }
+
+    @DataBoundSetter
+    public void setPollIntervalSeconds(int pollIntervalSeconds) {
+        this.pollIntervalSeconds = Math.max(5, pollIntervalSeconds);
+    }
+
+    @Override
+    public StepExecution start(StepContext context) {
+        return new Execution(context, scanId, pollIntervalSeconds);
+    }
+
+    static class Execution extends StepExecution {
+        private static final long serialVersionUID = 1L;
+        private static final int MAX_CONSECUTIVE_FAILURES = 10;
+
+        private final String requestedScanId;
+        private final int pollIntervalSeconds;
+        private String scanId;
+        private int consecutiveFailures;
+        private transient volatile Future<?> poll;
+        private transient volatile boolean stopped;
+
+        Execution(StepContext context, String requestedScanId, int pollIntervalSeconds) {
+            super(context);
+            this.requestedScanId = requestedScanId;
+            this.pollIntervalSeconds = pollIntervalSeconds;
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            CheckmarxScanStateAction state = findState();
+            scanId = state.getScanId();
+            getContext().get(TaskListener.class).getLogger().println("Waiting for Checkmarx scan " + scanId);
+            schedule(0);
+            return false;
+        }
+
+        @Override
+        public void onResume() {
+            // the scan went on running on the server while the controller was down
+            schedule(0);
+        }
+
+        @Override
+        public void stop(@NonNull Throwable cause) throws Exception {
+            stopped = true;
+            Future<?> current = poll;
+            if (current != null) {
+                current.cancel(false);
+            }
+            // the scan would otherwise go on running on the server, the CLI call must not block the pipeline thread
+            Computer.threadPoolForRemoting.submit(() -> {
+                try {
+                    cancelScan();
+                } finally {
+                    getContext().onFailure(cause);
+                }
+            });
+        }
+
+        @Override
+        public String getStatus() {
+            return "waiting for Checkmarx scan " + scanId;
+        }
+
+        private void schedule(long delaySeconds) {
+            if (stopped) {
+                return;
+            }
+            poll = Timer.get().schedule(() -> Computer.threadPoolForRemoting.submit(this::poll), delaySeconds, TimeUnit.SECONDS);
+        }
+
+        private void poll() {
+            TaskListener listener;
+            try {
+                listener = getContext().get(TaskListener.class);
+            } catch (IOException | InterruptedException e) {
+                getContext().onFailure(e);
+                return;
+            }
+            CxLoggerAdapter log = new CxLoggerAdapter(listener.getLogger());
+
+            try {
+                Run<?, ?> run = getContext().get(Run.class);
+                CheckmarxScanStateAction state = findState();
+                ScanFollowUp followUp = new ScanFollowUp(run, state, listener);
+                String status = followUp.status();
+                consecutiveFailures = 0;
+                if (ScanFollowUp.isCompleted(status)) {
+                    log.info("Checkmarx scan {} finished with status {}", scanId, status);
+                    state.setPhase(run, CheckmarxScanStateAction.Phase.REPORTING);
+                    followUp.attachReports();
+                    state.setPhase(run, CheckmarxScanStateAction.Phase.COMPLETED);
+                    getContext().onSuccess(status);
+                } else if (ScanFollowUp.isFailed(status)) {
+                    state.setPhase(run, CheckmarxScanStateAction.Phase.FAILED);
+                    getContext().onFailure(new AbortException("Checkmarx scan " + scanId + " finished with status " + status));
+                } else {
+                    schedule(pollIntervalSeconds);
+                }
+            } catch (InterruptedException e) {
+                getContext().onFailure(e);
+            } catch (Exception e) {
+                if (++consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                    getContext().onFailure(e);
+                    return;
+                }
+                log.warn("Could not check the status of Checkmarx scan {}, retrying: {}", scanId, e.getMessage());
+                schedule(pollIntervalSeconds);
+            }
+        }
+
+        private void cancelScan() {
+            TaskListener listener = null;
+            try {
+                listener = getContext().get(TaskListener.class);
+                Run<?, ?> run = getContext().get(Run.class);
+                CheckmarxScanStateAction state = findState();
+                new ScanFollowUp(run, state, listener).cancel();
+                state.setPhase(run, CheckmarxScanStateAction.Phase.FAILED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                if (listener != null) {
+                    new CxLoggerAdapter(listener.getLogger()).warn("Could not cancel Checkmarx scan {}: {}", scanId, e.getMessage());
+                }
+            }
+        }
+
+        private CheckmarxScanStateAction findState() throws IOException, InterruptedException {
+            return CheckmarxScanStateAction.findAsync(getContext().get(Run.class), scanId != null ? scanId : requestedScanId);
+        }
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+
+        @Override
+        public String getFunctionName() {
+            return "checkmarxWaitForScan";
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Wait for an asynchronous Checkmarx AST scan";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return new HashSet<>(Arrays.asList(Run.class, TaskListener.class));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.checkmarx.jenkins;
+
+import hudson.model.Run;
+import hudson.scm.ChangeLogSet;
+import jenkins.scm.RunWithSCM;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the scan engines worth running from the files changed by a build: SAST for source changes, SCA for
+ * dependency manifest changes and KICS for infrastructure as code changes. Only the engines listed in
+ * {@code --scan-types} are narrowed down, engines other than these three are left as configured.
+ */
+public final class EngineSelection {
+
+    public static final String SAST = "sast";
+    public static final String SCA = "sca";
+    public static final String IAC = "iac-security";
+    public static final List<String> SELECTABLE_ENGINES = Arrays.asList(SAST, SCA, IAC);
+
+    static final String SCAN_TYPES = "--scan-types";
+    private static final Pattern SCAN_TYPES_PATTERN = Pattern.compile(SCAN_TYPES + "(?:\\s+|=)(\"[^\"]*\"|\\S+)");
+
+    static final List<String> MANIFEST_FILES = Arrays.asList(
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "gradle.lockfile",
+            "package.json", "package-lock.json", "yarn.lock", "pnpm-lock.yaml", "bower.json",
+            "requirements.txt", "pipfile", "pipfile.lock", "setup.py", "pyproject.toml", "poetry.lock",
+            "go.mod", "go.sum", "gemfile", "gemfile.lock", "composer.json", "composer.lock",
+            "cargo.toml", "cargo.lock", "packages.config", "directory.packages.props", "packages.lock.json",
+            "ivy.xml", "build.sbt", "podfile", "podfile.lock", "cartfile", "package.swift", "pubspec.yaml", "pubspec.lock");
+    static final List<String> MANIFEST_EXTENSIONS = Arrays.asList(".csproj", ".vbproj", ".fsproj", ".nuspec");
+    static final List<String> IAC_EXTENSIONS = Arrays.asList(
+            ".tf", ".tfvars", ".hcl", ".bicep", ".yaml", ".yml", ".template", ".dockerfile");
+    /**
+     * Extensions of files that are only infrastructure as code under one of the {@link #IAC_DIRECTORIES}, and may
+     * be application configuration or sources anywhere else.
+     */
+    static final List<String> GENERIC_IAC_EXTENSIONS = Arrays.asList(".yaml", ".yml", ".template");
+    static final List<String> IAC_DIRECTORIES = Arrays.asList(
+            "k8s", "kubernetes", "helm", "charts", "templates", "cloudformation", "terraform", "kustomize", "openshift");
+
+    private EngineSelection() {
+    }
+
+    /**
+     * @return the paths changed by the build, or null when the build has no change log to tell
+     */
+    public static List<String> changedPaths(Run<?, ?> run) {
+        if (!(run instanceof RunWithSCM)) {
+            return null;
+        }
+        List<String> paths = new ArrayList<>();
+        for (ChangeLogSet<? extends ChangeLogSet.Entry> changeSet : ((RunWithSCM<?, ?>) run).getChangeSets()) {
+            for (ChangeLogSet.Entry entry : changeSet) {
+                paths.addAll(entry.getAffectedPaths());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * @return the selectable engines the changed paths call for, in {@link #SELECTABLE_ENGINES} order
+     */
+    public static Set<String> requiredEngines(Collection<String> changedPaths) {
+        Set<String> engines = new LinkedHashSet<>();
+        for (String path : changedPaths) {
+            if (isManifest(path)) {
+                engines.add(SCA);
+            } else if (isInfrastructureAsCode(path)) {
+                engines.add(IAC);
+                if (isGenericConfiguration(path)) {
+                    engines.add(SAST);
+                }
+            } else {
+                engines.add(SAST);
+            }
+        }
+        Set<String> ordered = new LinkedHashSet<>(SELECTABLE_ENGINES);
+        ordered.retainAll(engines);
+        return ordered;
+    }
+
+    public static boolean isManifest(String path) {
+        String name = fileName(path);
+        return MANIFEST_FILES.contains(name) || MANIFEST_EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    public static boolean isInfrastructureAsCode(String path) {
+        String name = fileName(path);
+        return name.equals("dockerfile") || name.startsWith("dockerfile.") || name.startsWith("docker-compose")
+                || IAC_EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    /**
+     * @return true for YAML and template files outside of the {@link #IAC_DIRECTORIES}, which are scanned as
+     * sources as well as infrastructure as code
+     */
+    static boolean isGenericConfiguration(String path) {
+        String name = fileName(path);
+        if (GENERIC_IAC_EXTENSIONS.stream().noneMatch(name::endsWith)) {
+            return false;
+        }
+        String[] segments = path.replace('\\', '/').toLowerCase(Locale.ENGLISH).split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (IAC_DIRECTORIES.contains(segments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true when the options list the engines to run in {@code --scan-types}
+     */
+    public static boolean hasScanTypes(String additionalOptions) {
+        return SCAN_TYPES_PATTERN.matcher(StringUtils.defaultString(additionalOptions)).find();
+    }
+
+    /**
+     * Narrows the {@code --scan-types} of the options down to the required engines. Options without
+     * {@code --scan-types} run the engines the tenant is configured with, which are left alone.
+     *
+     * @return the options to scan with, or null when the options do not list engines or none of the listed
+     * engines is required
+     */
+    public static String applyToOptions(String additionalOptions, Set<String> requiredEngines) {
+        String options = StringUtils.defaultString(additionalOptions);
+        Matcher matcher = SCAN_TYPES_PATTERN.matcher(options);
+        if (!matcher.find()) {
+            return null;
+        }
+        List<String> engines = new ArrayList<>();
+        for (String engine : StringUtils.strip(matcher.group(1), "\"").split(",")) {
+            String name = engine.trim().toLowerCase(Locale.ENGLISH);
+            if (!name.isEmpty() && (!SELECTABLE_ENGINES.contains(name) || requiredEngines.contains(name))) {
+                engines.add(engine.trim());
+            }
+        }
+        if (engines.isEmpty()) {
+            return null;
+        }
+        return options.substring(0, matcher.start()) + SCAN_TYPES + " " + StringUtils.join(engines, ",") + options.substring(matcher.end());
+    }
+
+    /**
+     * @return true when the options run the engine, i.e. list it in {@code --scan-types} or do not restrict them
+     */
+    public static boolean runsEngine(String additionalOptions, String engine) {
+        Matcher matcher = SCAN_TYPES_PATTERN.matcher(StringUtils.defaultString(additionalOptions));
+        if (!matcher.find()) {
+            return true;
+        }
+        for (String configured : StringUtils.strip(matcher.group(1), "\"").split(",")) {
+            if (configured.trim().equalsIgnoreCase(engine)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String fileName(String path) {
+        String normalized = path.replace('\\', '/');
+        return normalized.substring(normalized.lastIndexOf('/') + 1).toLowerCase(Locale.ENGLISH);
+    }
+}
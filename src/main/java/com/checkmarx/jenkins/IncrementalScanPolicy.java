@@ -0,0 +1,56 @@
+package com.checkmarx.jenkins;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Decides between an incremental and a full SAST scan of a branch. Scans are incremental by default, with a full
+ * scan as baseline every given number of scans, every given number of days, or when a build changes many files.
+ * A value of 0 disables the corresponding trigger.
+ */
+public final class IncrementalScanPolicy {
+
+    public static final String SAST_INCREMENTAL = "--sast-incremental";
+    private static final Pattern SAST_INCREMENTAL_PATTERN = Pattern.compile("\\s*" + SAST_INCREMENTAL + "(?:[= ](?:true|false))?(?=\\s|$)");
+
+    private final int fullScanEveryBuilds;
+    private final int fullScanEveryDays;
+    private final int changedFilesThreshold;
+
+    public IncrementalScanPolicy(int fullScanEveryBuilds, int fullScanEveryDays, int changedFilesThreshold) {
+        this.fullScanEveryBuilds = fullScanEveryBuilds;
+        this.fullScanEveryDays = fullScanEveryDays;
+        this.changedFilesThreshold = changedFilesThreshold;
+    }
+
+    /**
+     * @param changedPaths the files changed by the build, or null when unknown
+     * @return why the scan has to be a full one, or null when it can be incremental
+     */
+    public String fullScanReason(CheckmarxScanHistory history, String baselineKey, List<String> changedPaths, long now) {
+        long lastFullScan = history.getLastFullSastScan(baselineKey);
+        if (lastFullScan < 0) {
+            return "no full scan of the branch is known";
+        }
+        int incrementalScans = history.getIncrementalSastScans(baselineKey);
+        if (fullScanEveryBuilds > 0 && incrementalScans + 1 >= fullScanEveryBuilds) {
+            return incrementalScans + " incremental scans ran since the last full scan";
+        }
+        long days = TimeUnit.MILLISECONDS.toDays(now - lastFullScan);
+        if (fullScanEveryDays > 0 && days >= fullScanEveryDays) {
+            return "the last full scan ran " + days + " days ago";
+        }
+        if (changedFilesThreshold > 0 && changedPaths != null && changedPaths.size() >= changedFilesThreshold) {
+            return "the build changed " + changedPaths.size() + " files";
+        }
+        return null;
+    }
+
+    /**
+     * @return the options without any {@code --sast-incremental}, which the policy manages
+     */
+    public static String removeIncrementalFlag(String additionalOptions) {
+        return additionalOptions == null ? null : SAST_INCREMENTAL_PATTERN.matcher(additionalOptions).replaceAll("").trim();
+    }
+}
@@ -14,7 +14,6 @@ import jenkins.model.Jenkins;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -24,11 +23,32 @@ public class PluginUtils {
     public static final String CHECKMARX_AST_RESULTS_HTML = "checkmarx-ast-results.html";
     public static final String CHECKMARX_AST_RESULTS_JSON = "checkmarx-ast-results.json";
     public static final String REGEX_SCAN_ID_FROM_LOGS = "\"ID\":\"([0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12})\"";
+    public static final Pattern SCAN_ID_PATTERN = Pattern.compile(REGEX_SCAN_ID_FROM_LOGS);
+    public static final Pattern POLICY_VIOLATION_PATTERN = Pattern.compile("Policy Management Violation[:\\s-].*");
+    public static final Pattern BREAK_BUILD_PATTERN = Pattern.compile("Break Build:\\s*true", Pattern.CASE_INSENSITIVE);
     private static final String JENKINS = "Jenkins";
     static final String CX_CLIENT_ID_ENV_KEY = "CX_CLIENT_ID";
     static final String CX_CLIENT_SECRET_ENV_KEY = "CX_CLIENT_SECRET";
     public static final String HTTP_PROXY = "HTTP_PROXY";
     public static final String defaultOutputName = "cx_result";
+    public static final String REPORT_FORMAT = "--report-format";
+    public static final String ASYNC = "--async";
+    public static final String OUTPUT_NAME = "--output-name";
+    public static final String OUTPUT_PATH = "--output-path";
+    /**
+     * Options telling where and how this build writes its reports, which do not change what is scanned.
+     */
+    static final List<String> PER_BUILD_OPTIONS = Arrays.asList(OUTPUT_PATH, OUTPUT_NAME, REPORT_FORMAT);
+    public static final List<String> SUMMARY_REPORT_FORMATS = Collections.unmodifiableList(
+            Arrays.asList(ReportFormat.summaryHTML.toString(), ReportFormat.summaryJSON.toString()));
+    /**
+     * Formats printed to the console rather than written to a file.
+     */
+    static final List<String> CONSOLE_REPORT_FORMATS = Collections.singletonList("summaryConsole");
+    /**
+     * Formats written to the same file as one of the summaries, so they cannot be generated along with them.
+     */
+    public static final List<String> SUMMARY_COLLIDING_REPORT_FORMATS = Collections.singletonList("json");
 
     public static CheckmarxInstallation findCheckmarxInstallation(final String checkmarxInstallation) {
         final CheckmarxScanBuilder.CheckmarxScanBuilderDescriptor descriptor = Jenkins.get().getDescriptorByType(CheckmarxScanBuilder.CheckmarxScanBuilderDescriptor.class);
@@ -59,18 +79,141 @@ public class PluginUtils {
         return cxWrapper.buildScanCancelArguments(scanId);
     }
 
-    public static List<String> generateHTMLReport(UUID scanId, final ScanConfig scanConfig, final String checkmarxCliExecutable, final CxLoggerAdapter log) throws IOException {
+    /**
+     * Builds a single results command producing all the given report formats in one CLI invocation.
+     */
+    public static List<String> generateReports(UUID scanId, final ScanConfig scanConfig, final String checkmarxCliExecutable, final CxLoggerAdapter log, final List<String> reportFormats) throws IOException {
         final CxConfig cxConfig = initiateWrapperObject(scanConfig, checkmarxCliExecutable);
 
         final CxWrapper cxWrapper = new CxWrapper(cxConfig, log);
-        return cxWrapper.buildResultsArguments(scanId, ReportFormat.summaryHTML);
+        final List<String> arguments = new ArrayList<>(cxWrapper.buildResultsArguments(scanId, ReportFormat.summaryHTML));
+        final String formats = String.join(",", reportFormats);
+        final int formatIndex = arguments.indexOf(REPORT_FORMAT);
+        if (formatIndex >= 0 && formatIndex + 1 < arguments.size()) {
+            arguments.set(formatIndex + 1, formats);
+        } else {
+            arguments.add(REPORT_FORMAT);
+            arguments.add(formats);
+        }
+        return arguments;
     }
 
-    public static List<String> generateJsonReport(UUID scanId, final ScanConfig scanConfig, final String checkmarxCliExecutable, final CxLoggerAdapter log) throws IOException {
-        final CxConfig cxConfig = initiateWrapperObject(scanConfig, checkmarxCliExecutable);
+    /**
+     * @return the report formats asked for with {@code --report-format} in the additional options that are written
+     * to a file and are not summaries, in the order given
+     */
+    public static List<String> additionalReportFormats(final String additionalOptions) {
+        final Set<String> formats = new LinkedHashSet<>();
+        for (String format : extractOptionValue(additionalOptions, REPORT_FORMAT).split(",")) {
+            final String name = format.trim();
+            if (!name.isEmpty() && !SUMMARY_REPORT_FORMATS.contains(name) && !CONSOLE_REPORT_FORMATS.contains(name)) {
+                formats.add(name);
+            }
+        }
+        return new ArrayList<>(formats);
+    }
 
+    /**
+     * @return the summary formats followed by the additional formats that can be generated along with them
+     */
+    public static List<String> mergeReportFormats(final List<String> additionalReportFormats) {
+        final Set<String> formats = new LinkedHashSet<>(SUMMARY_REPORT_FORMATS);
+        for (String format : additionalReportFormats) {
+            if (!SUMMARY_COLLIDING_REPORT_FORMATS.contains(format)) {
+                formats.add(format);
+            }
+        }
+        return new ArrayList<>(formats);
+    }
+
+    /**
+     * @return the options without those only telling where and how the build writes its reports, with the
+     * whitespace normalized, so builds in other workspaces scanning the same way give the same result
+     */
+    public static String withoutPerBuildOptions(final String options) {
+        String remaining = options == null ? "" : options;
+        for (String option : PER_BUILD_OPTIONS) {
+            remaining = remaining.replaceAll("(?:^|\\s)" + Pattern.quote(option) + "(?:=|\\s+)(?:\"[^\"]*\"|\\S+)", " ");
+        }
+        return remaining.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * @return the patterns of the reports the build writes into the source directory, as set with
+     * {@code --output-name} and {@code --output-path}
+     */
+    public static List<String> reportExcludePatterns(ScanConfig scanConfig) {
+        List<String> excludes = new ArrayList<>();
+        String outputName = extractOptionValue(scanConfig.getAdditionalOptions(), OUTPUT_NAME);
+        if (!outputName.isEmpty()) {
+            excludes.add("**/" + outputName + ".*");
+        }
+        String outputPath = stripEnd(extractOptionValue(scanConfig.getAdditionalOptions(), OUTPUT_PATH).replace('\\', '/'), "/");
+        String sourceDirectory = stripEnd(Objects.toString(scanConfig.getSourceDirectory(), "").replace('\\', '/'), "/");
+        if (!sourceDirectory.isEmpty() && outputPath.startsWith(sourceDirectory + "/")) {
+            excludes.add(outputPath.substring(sourceDirectory.length() + 1) + "/**");
+        }
+        return excludes;
+    }
+
+    private static String stripEnd(final String path, final String suffix) {
+        return path.endsWith(suffix) ? path.substring(0, path.length() - suffix.length()) : path;
+    }
+
+    /**
+     * @return the value of the option, unquoted, or an empty string when the options do not set it
+     */
+    public static String extractOptionValue(final String options, final String optionKey) {
+        if (options != null && options.contains(optionKey)) {
+            String[] parts = options.split(optionKey, 2);
+            if (parts.length > 1) {
+                String remaining = parts[1].trim();
+                if (remaining.startsWith("\"")) {
+                    int endIndex = remaining.indexOf("\"", 1);
+                    if (endIndex > 0) {
+                        return remaining.substring(1, endIndex);
+                    }
+                } else {
+                    return remaining.split(" ")[0];
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Builds the command printing the scan as JSON, to be run on the node of the build with the credentials in its
+     * environment.
+     *
+     * @see #insertSecretsAsEnvVars(ScanConfig, EnvVars)
+     */
+    public static List<String> scanShow(UUID scanId, final ScanConfig scanConfig, final String checkmarxCliExecutable) {
+        final List<String> arguments = new ArrayList<>(Arrays.asList(checkmarxCliExecutable, "scan", "show",
+                "--scan-id", scanId.toString(), "--format", "json"));
+        addOption(arguments, "--base-uri", scanConfig.getServerUrl());
+        addOption(arguments, "--base-auth-uri", scanConfig.getBaseAuthUrl());
+        addOption(arguments, "--tenant", scanConfig.getTenantName());
+        return arguments;
+    }
+
+    private static void addOption(final List<String> arguments, final String option, final String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            arguments.add(option);
+            arguments.add(value);
+        }
+    }
+
+    /**
+     * Looks the scan up on the server.
+     *
+     * @return the status of the scan, e.g. Queued, Running, Completed, Partial, Failed or Canceled
+     */
+    public static String scanStatus(UUID scanId, final ScanConfig scanConfig, final String checkmarxCliExecutable, final CxLoggerAdapter log) throws IOException, InterruptedException, CxException {
+        final CxConfig cxConfig = initiateWrapperObject(scanConfig, checkmarxCliExecutable);
+        cxConfig.setClientId(scanConfig.getCheckmarxToken().getClientId());
+        cxConfig.setClientSecret(scanConfig.getCheckmarxToken().getToken().getPlainText());
         final CxWrapper cxWrapper = new CxWrapper(cxConfig, log);
-        return cxWrapper.buildResultsArguments(scanId, ReportFormat.summaryJSON);
+        return cxWrapper.scanShow(scanId).getStatus();
     }
 
     public static String authValidate(final ScanConfig scanConfig, final String checkmarxCliExecutable) throws IOException, InterruptedException, CxException {
@@ -91,34 +234,6 @@ public class PluginUtils {
                 .build();
     }
 
-    public static String getScanIdFromLogFile(String logs) {
-        final String regex = REGEX_SCAN_ID_FROM_LOGS;
-        final Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(logs);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return "";
-    }
-
-    public static boolean isPolicyViolated(String logs) {
-            // Checking if policy violation message exists in the logs
-            final String policyViolationRegex = "Policy Management Violation[:\\s-].*";
-            final Pattern policyPattern = Pattern.compile(policyViolationRegex);
-            Matcher policyMatcher = policyPattern.matcher(logs);
-
-            if (policyMatcher.find()) {
-                // Checks if "Break Build: true"
-                final String breakBuildRegex = "Break Build:\\s*true";
-                final Pattern breakBuildPattern = Pattern.compile(breakBuildRegex, Pattern.CASE_INSENSITIVE);
-                Matcher breakBuildMatcher = breakBuildPattern.matcher(logs);
-
-                return breakBuildMatcher.find();
-            }
-
-            return false;
-        }
-
     public static void insertSecretsAsEnvVars(ScanConfig scanConfig, EnvVars envVars) throws IOException, InterruptedException {
         envVars.put(CX_CLIENT_ID_ENV_KEY,scanConfig.getCheckmarxToken().getClientId());
         envVars.put(CX_CLIENT_SECRET_ENV_KEY, scanConfig.getCheckmarxToken().getToken().getPlainText());
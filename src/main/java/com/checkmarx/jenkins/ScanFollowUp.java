@@ -0,0 +1,202 @@
+package com.checkmarx.jenkins;
+
+import com.checkmarx.ast.results.ResultsSummary;
+import com.checkmarx.ast.wrapper.CxException;
+import com.checkmarx.jenkins.credentials.CheckmarxApiToken;
+import com.checkmarx.jenkins.exception.CheckmarxException;
+import com.checkmarx.jenkins.logger.CxLoggerAdapter;
+import com.checkmarx.jenkins.model.ScanConfig;
+import com.checkmarx.jenkins.tools.CheckmarxInstallation;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+import hudson.util.StreamBuildListener;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.cloudbees.plugins.credentials.CredentialsProvider.findCredentialById;
+
+/**
+ * Follows an asynchronous scan up from the controller, without any agent: looks up its status on the server and,
+ * once it is done, generates the summary reports and attaches them to the run. The CLI is installed on the
+ * controller on first use. A build reattaching to its scan polls from its own agent instead.
+ */
+public final class ScanFollowUp {
+
+    static final List<String> COMPLETED_STATUSES = Arrays.asList("Completed", "Partial");
+    static final List<String> FAILED_STATUSES = Arrays.asList("Failed", "Canceled");
+
+    private final Run<?, ?> run;
+    private final CheckmarxScanStateAction state;
+    private final TaskListener listener;
+    private final CxLoggerAdapter log;
+
+    public ScanFollowUp(Run<?, ?> run, CheckmarxScanStateAction state, TaskListener listener) {
+        this.run = run;
+        this.state = state;
+        this.listener = listener;
+        this.log = new CxLoggerAdapter(listener.getLogger());
+    }
+
+    public static boolean isCompleted(String status) {
+        return COMPLETED_STATUSES.stream().anyMatch(s -> s.equalsIgnoreCase(status));
+    }
+
+    public static boolean isFailed(String status) {
+        return FAILED_STATUSES.stream().anyMatch(s -> s.equalsIgnoreCase(status));
+    }
+
+    /**
+     * @return the status of the scan printed by {@code scan show --format json}
+     * @throws CheckmarxException when the output holds no scan
+     */
+    public static String parseStatus(String output) throws CheckmarxException {
+        int start = output.indexOf('{');
+        int end = output.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            throw new CheckmarxException("Unexpected output of scan show: " + output.trim());
+        }
+        try {
+            String status = JSONObject.fromObject(output.substring(start, end + 1)).optString("Status", null);
+            if (status == null || status.isEmpty()) {
+                throw new CheckmarxException("The output of scan show has no status: " + output.trim());
+            }
+            return status;
+        } catch (JSONException e) {
+            throw new CheckmarxException("Unexpected output of scan show: " + e.getMessage());
+        }
+    }
+
+    public String status() throws IOException, InterruptedException, CheckmarxException {
+        try {
+            return PluginUtils.scanStatus(UUID.fromString(state.getScanId()), scanConfig(), executable(), log);
+        } catch (CxException e) {
+            throw new CheckmarxException(e.getMessage());
+        }
+    }
+
+    /**
+     * Cancels the scan on the server from the controller.
+     */
+    public void cancel() throws IOException, InterruptedException, CheckmarxException {
+        ScanConfig scanConfig = scanConfig();
+        EnvVars envVars = new EnvVars();
+        PluginUtils.insertSecretsAsEnvVars(scanConfig, envVars);
+        log.info("Cancelling scan with id: {}", state.getScanId());
+        Jenkins.get().createLauncher(listener).launch()
+                .cmds(PluginUtils.scanCancel(UUID.fromString(state.getScanId()), scanConfig, executable(), log))
+                .envs(envVars).stdout(listener.getLogger()).join();
+    }
+
+    /**
+     * Generates the summary reports of the finished scan on the controller, along with the reports asked for with
+     * {@code --report-format}, and attaches them to the run.
+     */
+    public void attachReports() throws IOException, InterruptedException, CheckmarxException {
+        ScanConfig scanConfig = scanConfig();
+        Launcher launcher = Jenkins.get().createLauncher(listener);
+        EnvVars envVars = new EnvVars();
+        PluginUtils.insertSecretsAsEnvVars(scanConfig, envVars);
+
+        FilePath reportsDir = new FilePath(Files.createTempDirectory("cx-reports").toFile());
+        try {
+            List<String> additionalReportFormats = state.getAdditionalReportFormats();
+            generateReports(scanConfig, launcher, envVars, PluginUtils.mergeReportFormats(additionalReportFormats),
+                    reportsDir, PluginUtils.CHECKMARX_AST_RESULTS);
+            List<String> collidingFormats = new ArrayList<>(additionalReportFormats);
+            collidingFormats.retainAll(PluginUtils.SUMMARY_COLLIDING_REPORT_FORMATS);
+            FilePath collidingDir = reportsDir.child("colliding");
+            if (!collidingFormats.isEmpty()) {
+                collidingDir.mkdirs();
+                generateReports(scanConfig, launcher, envVars, collidingFormats, collidingDir, state.getReportOutputName());
+            }
+
+            Map<String, String> artifacts = new HashMap<>();
+            for (String report : Arrays.asList(PluginUtils.CHECKMARX_AST_RESULTS_HTML, PluginUtils.CHECKMARX_AST_RESULTS_JSON)) {
+                if (reportsDir.child(report).exists()) {
+                    artifacts.put(report, report);
+                }
+            }
+            for (String formatType : additionalReportFormats) {
+                String report = state.getReportOutputName() + "." + formatType;
+                String generated = collidingFormats.contains(formatType)
+                        ? "colliding/" + report
+                        : PluginUtils.CHECKMARX_AST_RESULTS + "." + formatType;
+                if (reportsDir.child(generated).exists()) {
+                    artifacts.put(report, generated);
+                } else {
+                    log.warn("The {} report was not generated", formatType);
+                }
+            }
+            if (!artifacts.isEmpty()) {
+                run.getArtifactManager().archive(reportsDir, launcher, new StreamBuildListener(listener.getLogger(), StandardCharsets.UTF_8), artifacts);
+            }
+
+            ResultsSummary resultsSummary = null;
+            FilePath jsonReport = reportsDir.child(PluginUtils.CHECKMARX_AST_RESULTS_JSON);
+            if (jsonReport.exists()) {
+                try (InputStream stream = jsonReport.read()) {
+                    resultsSummary = CheckmarxScanResultsAction.parseResultsSummary(stream);
+                }
+            }
+            CheckmarxScanResultsAction resultsAction = run.getAction(CheckmarxScanResultsAction.class);
+            if (resultsAction == null) {
+                run.addAction(new CheckmarxScanResultsAction(resultsSummary));
+            } else if (resultsSummary != null) {
+                resultsAction.setResultsSummary(resultsSummary);
+            }
+            run.save();
+        } finally {
+            reportsDir.deleteRecursive();
+        }
+    }
+
+    private void generateReports(ScanConfig scanConfig, Launcher launcher, EnvVars envVars, List<String> reportFormats,
+                                 FilePath outputDir, String outputName) throws IOException, InterruptedException, CheckmarxException {
+        ArgumentListBuilder arguments = new ArgumentListBuilder();
+        arguments.add(PluginUtils.generateReports(UUID.fromString(state.getScanId()), scanConfig, executable(), log, reportFormats));
+        arguments.add("--output-path", outputDir.getRemote());
+        arguments.add(PluginUtils.OUTPUT_NAME, outputName);
+        launcher.launch().cmds(arguments).envs(envVars).stdout(listener.getLogger()).join();
+    }
+
+    private ScanConfig scanConfig() throws CheckmarxException {
+        CheckmarxApiToken token = findCredentialById(state.getCredentialsId(), CheckmarxApiToken.class, run);
+        if (token == null) {
+            throw new CheckmarxException("Checkmarx credentials with ID '" + state.getCredentialsId() + "' were not found.");
+        }
+        ScanConfig scanConfig = new ScanConfig();
+        scanConfig.setServerUrl(state.getServerUrl());
+        scanConfig.setBaseAuthUrl(state.getBaseAuthUrl());
+        scanConfig.setTenantName(state.getTenantName());
+        scanConfig.setCheckmarxToken(token);
+        return scanConfig;
+    }
+
+    private String executable() throws IOException, InterruptedException, CheckmarxException {
+        CheckmarxInstallation installation = PluginUtils.findCheckmarxInstallation(state.getCheckmarxInstallation());
+        if (installation == null) {
+            throw new CheckmarxException("Checkmarx installation named '" + state.getCheckmarxInstallation() + "' was not found.");
+        }
+        String executable = installation.forNode(Jenkins.get(), listener).getCheckmarxExecutable(Jenkins.get().createLauncher(listener));
+        if (executable == null) {
+            throw new CheckmarxException("Can't retrieve the Checkmarx executable on the controller.");
+        }
+        return executable;
+    }
+}
@@ -0,0 +1,143 @@
+package com.checkmarx.jenkins;
+
+import hudson.EnvVars;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controller-wide slots limiting the scans running at once per {@link ScanThrottle}. Builds over the limit wait
+ * in priority order, first come first served within a priority.
+ */
+public final class ScanSlots {
+
+    /** Builds of the primary branch, or of jobs that are not multibranch. */
+    public static final int PRIORITY_PRIMARY = 0;
+    public static final int PRIORITY_BRANCH = 1;
+    public static final int PRIORITY_CHANGE_REQUEST = 2;
+
+    private static final Map<String, Gate> GATES = new ConcurrentHashMap<>();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private ScanSlots() {
+    }
+
+    /**
+     * @return the priority of a build from the variables set by multibranch projects
+     */
+    public static int priorityOf(EnvVars envVars) {
+        if (envVars.get("CHANGE_ID") != null) {
+            return PRIORITY_CHANGE_REQUEST;
+        }
+        if (envVars.get("BRANCH_NAME") != null && !"true".equals(envVars.get("BRANCH_IS_PRIMARY"))) {
+            return PRIORITY_BRANCH;
+        }
+        return PRIORITY_PRIMARY;
+    }
+
+    /**
+     * Waits until fewer than {@code limit} scans hold a slot of the key and no build of a higher priority waits.
+     *
+     * @return the slot, to close once the scan is over
+     */
+    public static Slot acquire(String key, int limit, int priority) throws InterruptedException {
+        Gate gate = GATES.computeIfAbsent(key, k -> new Gate());
+        Ticket ticket = new Ticket(priority, SEQUENCE.incrementAndGet());
+        long waitedMillis = -1;
+        synchronized (gate) {
+            gate.waiting.add(ticket);
+            try {
+                long start = System.currentTimeMillis();
+                while (gate.running >= limit || gate.waiting.peek() != ticket) {
+                    gate.wait();
+                    waitedMillis = System.currentTimeMillis() - start;
+                }
+            } catch (InterruptedException e) {
+                gate.waiting.remove(ticket);
+                gate.notifyAll();
+                throw e;
+            }
+            gate.waiting.poll();
+            gate.running++;
+            // the next build in line may fit as well
+            gate.notifyAll();
+        }
+        return new Slot(gate, waitedMillis);
+    }
+
+    public static int getRunning(String key) {
+        Gate gate = GATES.get(key);
+        if (gate == null) {
+            return 0;
+        }
+        synchronized (gate) {
+            return gate.running;
+        }
+    }
+
+    public static int getWaiting(String key) {
+        Gate gate = GATES.get(key);
+        if (gate == null) {
+            return 0;
+        }
+        synchronized (gate) {
+            return gate.waiting.size();
+        }
+    }
+
+    public static final class Slot implements AutoCloseable {
+        private Gate gate;
+        private final long waitedMillis;
+
+        private Slot(Gate gate, long waitedMillis) {
+            this.gate = gate;
+            this.waitedMillis = waitedMillis;
+        }
+
+        /**
+         * @return true when the slot was not free right away and the build had to wait for it
+         */
+        public boolean wasContended() {
+            return waitedMillis >= 0;
+        }
+
+        /**
+         * @return how long the build waited for the slot, or -1 when it got it right away
+         */
+        public long getWaitedMillis() {
+            return waitedMillis;
+        }
+
+        @Override
+        public void close() {
+            Gate released = gate;
+            if (released == null) {
+                return;
+            }
+            gate = null;
+            synchronized (released) {
+                released.running--;
+                released.notifyAll();
+            }
+        }
+    }
+
+    private static final class Gate {
+        private final PriorityQueue<Ticket> waiting = new PriorityQueue<>(
+                Comparator.comparingInt((Ticket t) -> t.priority).thenComparingLong(t -> t.sequence));
+        private int running;
+    }
+
+    private static final class Ticket {
+        private final int priority;
+        private final long sequence;
+
+        private Ticket(int priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+}
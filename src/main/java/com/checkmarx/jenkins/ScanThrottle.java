@@ -0,0 +1,90 @@
+package com.checkmarx.jenkins;
+
+import com.checkmarx.jenkins.model.ScanConfig;
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import lombok.NonNull;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.util.Locale;
+
+import static hudson.Util.fixEmptyAndTrim;
+
+/**
+ * Limit of concurrent scans the builds of this controller run against a server, or against one tenant of it.
+ * Scans over the limit wait for a free slot on the controller rather than queueing on the server while they
+ * hold their executor.
+ */
+public class ScanThrottle extends AbstractDescribableImpl<ScanThrottle> {
+
+    private final String serverUrl;
+    private final String tenantName;
+    private final int maxConcurrentScans;
+
+    @DataBoundConstructor
+    public ScanThrottle(String serverUrl, String tenantName, int maxConcurrentScans) {
+        this.serverUrl = fixEmptyAndTrim(serverUrl);
+        this.tenantName = fixEmptyAndTrim(tenantName);
+        this.maxConcurrentScans = Math.max(1, maxConcurrentScans);
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    /**
+     * @return the tenant the limit applies to, or null when it is shared by all the tenants of the server
+     */
+    public String getTenantName() {
+        return tenantName;
+    }
+
+    public int getMaxConcurrentScans() {
+        return maxConcurrentScans;
+    }
+
+    public boolean matches(ScanConfig scanConfig) {
+        return serverUrl != null
+                && normalize(serverUrl).equals(normalize(scanConfig.getServerUrl()))
+                && (tenantName == null || tenantName.equalsIgnoreCase(StringUtils.trimToEmpty(scanConfig.getTenantName())));
+    }
+
+    /**
+     * @return the key the scans sharing this limit are counted under
+     */
+    public String getKey() {
+        return normalize(serverUrl) + "|" + (tenantName == null ? "" : tenantName.toLowerCase(Locale.ENGLISH));
+    }
+
+    private static String normalize(String url) {
+        return StringUtils.removeEnd(StringUtils.trimToEmpty(url), "/").toLowerCase(Locale.ENGLISH);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<ScanThrottle> {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Concurrent scan limit";
+        }
+
+        public FormValidation doCheckServerUrl(@QueryParameter String value) {
+            if (fixEmptyAndTrim(value) == null) {
+                return FormValidation.error("Server Url cannot be empty");
+            }
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckMaxConcurrentScans(@QueryParameter int value) {
+            if (value < 1) {
+                return FormValidation.error("The limit must be at least 1");
+            }
+            return FormValidation.ok();
+        }
+    }
+}
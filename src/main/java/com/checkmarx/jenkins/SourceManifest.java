@@ -0,0 +1,185 @@
+package com.checkmarx.jenkins;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Content digest of the sources to be uploaded: a SHA-256 over the sorted relative paths and SHA-256 of every
+ * file. It covers the files of the snapshot when one is uploaded, the whole source directory otherwise, without
+ * VCS metadata and the reports the plugin writes to the workspace. Equal digests mean the scan would upload the
+ * same sources.
+ */
+public final class SourceManifest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final List<String> EXCLUDED_DIRECTORIES = Arrays.asList(".git", ".svn", ".hg");
+
+    /**
+     * Reports and snapshots left by earlier builds, as are the {@code cx} temporary directories they are written to.
+     */
+    static final List<String> EXCLUDED_OUTPUTS = Arrays.asList("**/" + PluginUtils.defaultOutputName + ".*",
+            "**/" + PluginUtils.CHECKMARX_AST_RESULTS + ".*", "**/" + SourceSnapshot.ARCHIVE_NAME);
+    private static final Pattern TEMP_DIRECTORY = Pattern.compile("cx\\d+.*");
+
+    private final String digest;
+    private final int fileCount;
+
+    public SourceManifest(String digest, int fileCount) {
+        this.digest = digest;
+        this.fileCount = fileCount;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Computes the manifest of a source directory on the node it lives on, hashing the files on all its cores.
+     */
+    public static final class Builder extends MasterToSlaveFileCallable<SourceManifest> {
+
+        private static final long serialVersionUID = 1L;
+
+        // shared by the builds running on the node, its threads are daemons
+        private static final ForkJoinPool HASHING_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        private final List<String> includes;
+        private final List<String> excludes;
+        private final boolean trackedFilesOnly;
+
+        /**
+         * Digests all the files of the source directory.
+         */
+        public Builder() {
+            this(Collections.emptyList());
+        }
+
+        /**
+         * Digests all the files of the source directory but those matching the patterns, e.g. the reports of the
+         * build written with a custom name or into a directory of the workspace.
+         */
+        public Builder(List<String> reportExcludes) {
+            this(Collections.emptyList(), reportExcludes, false);
+        }
+
+        /**
+         * Digests the files a {@link SourceSnapshot} with the same patterns holds.
+         */
+        public Builder(List<String> includes, List<String> excludes) {
+            this(includes, excludes, true);
+        }
+
+        private Builder(List<String> includes, List<String> excludes, boolean trackedFilesOnly) {
+            this.includes = new ArrayList<>(includes);
+            this.excludes = new ArrayList<>(excludes);
+            this.trackedFilesOnly = trackedFilesOnly;
+        }
+
+        @Override
+        public SourceManifest invoke(File directory, VirtualChannel channel) throws IOException, InterruptedException {
+            Path root = directory.toPath();
+            List<String> paths = trackedFilesOnly ? SourceSnapshot.listSources(directory, includes, excludes) : listFiles(root, excludes);
+
+            List<String> lines;
+            try {
+                lines = HASHING_POOL.submit(() -> paths.parallelStream()
+                        .map(path -> path + '\0' + sha256(root.resolve(path)))
+                        .sorted()
+                        .collect(Collectors.toList())).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw new IOException(cause);
+            }
+
+            MessageDigest manifest = newDigest();
+            for (String line : lines) {
+                manifest.update(line.getBytes(StandardCharsets.UTF_8));
+                manifest.update((byte) '\n');
+            }
+            return new SourceManifest(Util.toHexString(manifest.digest()), lines.size());
+        }
+
+        private static List<String> listFiles(Path root, List<String> reportExcludes) throws IOException {
+            List<String> excluded = new ArrayList<>(EXCLUDED_OUTPUTS);
+            excluded.addAll(reportExcludes);
+            List<String> paths = new ArrayList<>();
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(root)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String name = String.valueOf(dir.getFileName());
+                    boolean excluded = EXCLUDED_DIRECTORIES.contains(name)
+                            || dir.getParent().equals(root) && TEMP_DIRECTORY.matcher(name).matches();
+                    return excluded ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String path = root.relativize(file).toString().replace('\\', '/');
+                    // the walk does not follow links, so symlinks are neither regular files nor descended into
+                    if (attrs.isRegularFile() && SourceSnapshot.isIncluded(path, Collections.emptyList(), excluded)) {
+                        paths.add(path);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return paths;
+        }
+
+        private static String sha256(Path file) {
+            MessageDigest digest = newDigest();
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(file, LinkOption.NOFOLLOW_LINKS)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return Util.toHexString(digest.digest());
+        }
+
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
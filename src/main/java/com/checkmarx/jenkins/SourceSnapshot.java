@@ -0,0 +1,231 @@
+package com.checkmarx.jenkins;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+
+import static java.lang.String.format;
+
+/**
+ * Zip of the files tracked by git, written on the agent and uploaded instead of the raw workspace, which also
+ * holds build outputs, dependencies and caches. Files are listed with {@code git ls-files}, filtered with Ant
+ * style include and exclude patterns, and compressed on all the cores of the agent.
+ */
+public final class SourceSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String ARCHIVE_NAME = "checkmarx-sources.zip";
+
+    /**
+     * Exclusions applied on top of the tracked files, before the configured patterns.
+     */
+    public enum Preset {
+        ALL_TRACKED_FILES("All tracked files"),
+        NO_BUILD_OUTPUTS("Exclude build outputs and vendored dependencies",
+                "**/node_modules/**", "**/bower_components/**", "**/vendor/**", "**/target/**", "**/build/**",
+                "**/dist/**", "**/out/**", "**/bin/**", "**/obj/**", "**/*.min.js", "**/*.jar", "**/*.zip"),
+        NO_TESTS_OR_BUILD_OUTPUTS("Exclude tests, build outputs and vendored dependencies",
+                "**/node_modules/**", "**/bower_components/**", "**/vendor/**", "**/target/**", "**/build/**",
+                "**/dist/**", "**/out/**", "**/bin/**", "**/obj/**", "**/*.min.js", "**/*.jar", "**/*.zip",
+                "**/test/**", "**/tests/**", "**/__tests__/**", "**/*.test.*", "**/*.spec.*", "**/*Test.java");
+
+        private final String displayName;
+        private final List<String> excludes;
+
+        Preset(String displayName, String... excludes) {
+            this.displayName = displayName;
+            this.excludes = Collections.unmodifiableList(Arrays.asList(excludes));
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public List<String> getExcludes() {
+            return excludes;
+        }
+    }
+
+    private final String archive;
+    private final int fileCount;
+    private final long size;
+
+    public SourceSnapshot(String archive, int fileCount, long size) {
+        this.archive = archive;
+        this.fileCount = fileCount;
+        this.size = size;
+    }
+
+    /**
+     * @return the path of the zip on the agent
+     */
+    public String getArchive() {
+        return archive;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the comma or newline separated patterns as a list
+     */
+    public static List<String> parsePatterns(String patterns) {
+        List<String> parsed = new ArrayList<>();
+        for (String pattern : StringUtils.defaultString(patterns).split("[,\\n]")) {
+            if (!pattern.trim().isEmpty()) {
+                parsed.add(pattern.trim());
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * @return true when the path matches one of the includes, or there are none, and none of the excludes
+     */
+    public static boolean isIncluded(String path, List<String> includes, List<String> excludes) {
+        if (!includes.isEmpty() && includes.stream().noneMatch(pattern -> SelectorUtils.matchPath(pattern, path))) {
+            return false;
+        }
+        return excludes.stream().noneMatch(pattern -> SelectorUtils.matchPath(pattern, path));
+    }
+
+    /**
+     * Writes the snapshot of the git working copy it is invoked on.
+     */
+    public static final class Creator extends MasterToSlaveFileCallable<SourceSnapshot> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String archiveDirectory;
+        private final List<String> includes;
+        private final List<String> excludes;
+
+        /**
+         * @param archiveDirectory where to write the zip, on the same node
+         */
+        public Creator(String archiveDirectory, List<String> includes, List<String> excludes) {
+            this.archiveDirectory = archiveDirectory;
+            this.includes = new ArrayList<>(includes);
+            this.excludes = new ArrayList<>(excludes);
+        }
+
+        @Override
+        public SourceSnapshot invoke(File workingCopy, VirtualChannel channel) throws IOException, InterruptedException {
+            List<String> paths = listSources(workingCopy, includes, excludes);
+
+            File archive = new File(archiveDirectory, ARCHIVE_NAME);
+            ParallelScatterZipCreator creator = new ParallelScatterZipCreator(
+                    Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+            for (String path : paths) {
+                File file = new File(workingCopy, path);
+                ZipArchiveEntry entry = new ZipArchiveEntry(path);
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setTime(file.lastModified());
+                creator.addArchiveEntry(entry, () -> {
+                    try {
+                        return Files.newInputStream(file.toPath(), LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(archive)) {
+                creator.writeTo(out);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw new IOException(cause);
+            }
+            return new SourceSnapshot(archive.getAbsolutePath(), paths.size(), archive.length());
+        }
+    }
+
+    /**
+     * @return the relative paths of the files a snapshot of the working copy holds; tracked symlinks and files
+     * reached through a symlinked directory are left out, since they may point outside the working copy
+     */
+    static List<String> listSources(File workingCopy, List<String> includes, List<String> excludes) throws IOException, InterruptedException {
+        Path root = workingCopy.toPath().toRealPath();
+        List<String> paths = new ArrayList<>();
+        for (String path : listTrackedFiles(workingCopy)) {
+            if (isIncluded(path, includes, excludes) && isInside(root, root.resolve(path))) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private static boolean isInside(Path root, Path file) throws IOException {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        // the file itself is no link, but one of its parent directories may be
+        return file.toRealPath().startsWith(root);
+    }
+
+    private static List<String> listTrackedFiles(File workingCopy) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("git", "ls-files", "-z")
+                .directory(workingCopy)
+                .start();
+        process.getOutputStream().close();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Thread errorReader = new Thread(() -> {
+            try (InputStream err = process.getErrorStream()) {
+                IOUtils.copy(err, errors);
+            } catch (IOException e) {
+                // only used for the error message
+            }
+        }, "git ls-files stderr");
+        errorReader.start();
+
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+        int exitCode = process.waitFor();
+        errorReader.join();
+        if (exitCode != 0) {
+            throw new IOException(format("git ls-files failed with exit code %d: %s", exitCode,
+                    errors.toString(StandardCharsets.UTF_8.name()).trim()));
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (String path : output.split("\0")) {
+            if (!path.isEmpty()) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+}
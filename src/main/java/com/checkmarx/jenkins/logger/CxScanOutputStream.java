@@ -0,0 +1,139 @@
+package com.checkmarx.jenkins.logger;
+
+import com.checkmarx.jenkins.PluginUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+
+/**
+ * Tees the AST-CLI output to the build log and inspects it line by line while it is being written,
+ * so the scan id and the policy violation markers are known without keeping the whole output in memory.
+ * The raw output can optionally be spilled to a file.
+ */
+public class CxScanOutputStream extends OutputStream {
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    // longer than any of the inspected markers
+    private static final int CHUNK_OVERLAP = 1024;
+
+    private final OutputStream log;
+    private final OutputStream rawLog;
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+    private int lineLength;
+    private boolean closed;
+
+    private volatile String scanId = "";
+    private volatile boolean policyViolation;
+    private volatile boolean breakBuild;
+
+    public CxScanOutputStream(OutputStream log) {
+        this(log, null);
+    }
+
+    public CxScanOutputStream(OutputStream log, OutputStream rawLog) {
+        this.log = log;
+        this.rawLog = rawLog;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        log.write(b);
+        if (rawLog != null) {
+            rawLog.write(b);
+        }
+        append((byte) b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        log.write(b, off, len);
+        if (rawLog != null) {
+            rawLog.write(b, off, len);
+        }
+        for (int i = off; i < off + len; i++) {
+            append(b[i]);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        log.flush();
+        if (rawLog != null) {
+            rawLog.flush();
+        }
+    }
+
+    /**
+     * Inspects the trailing partial line and closes the raw log. The build log itself is left open.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        endOfLine();
+        log.flush();
+        if (rawLog != null) {
+            rawLog.close();
+        }
+    }
+
+    public String getScanId() {
+        return scanId;
+    }
+
+    /**
+     * @return true when the CLI reported a policy management violation with break build enabled
+     */
+    public boolean isPolicyViolated() {
+        return policyViolation && breakBuild;
+    }
+
+    /**
+     * Called from the thread pumping the CLI output as soon as the scan id is printed.
+     */
+    protected void onScanId(String scanId) {
+    }
+
+    private void append(byte b) {
+        if (b == '\n') {
+            endOfLine();
+            return;
+        }
+        if (lineLength == line.length) {
+            // a longer line is inspected in chunks, each starting with the tail of the previous one, so a marker
+            // straddling two chunks is still found
+            inspect(new String(line, 0, lineLength, StandardCharsets.UTF_8));
+            System.arraycopy(line, lineLength - CHUNK_OVERLAP, line, 0, CHUNK_OVERLAP);
+            lineLength = CHUNK_OVERLAP;
+        }
+        line[lineLength++] = b;
+    }
+
+    private void endOfLine() {
+        if (lineLength == 0) {
+            return;
+        }
+        inspect(new String(line, 0, lineLength, StandardCharsets.UTF_8));
+        lineLength = 0;
+    }
+
+    private void inspect(String text) {
+        if (scanId.isEmpty()) {
+            Matcher matcher = PluginUtils.SCAN_ID_PATTERN.matcher(text);
+            if (matcher.find()) {
+                scanId = matcher.group(1);
+                onScanId(scanId);
+            }
+        }
+        if (!policyViolation && PluginUtils.POLICY_VIOLATION_PATTERN.matcher(text).find()) {
+            policyViolation = true;
+        }
+        if (!breakBuild && PluginUtils.BREAK_BUILD_PATTERN.matcher(text).find()) {
+            breakBuild = true;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.checkmarx.jenkins.tools;
+
+import com.checkmarx.jenkins.CheckmarxScanBuilder;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+import hudson.tools.InstallSourceProperty;
+import hudson.tools.ToolInstallation;
+import hudson.tools.ToolInstaller;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.LogTaskListener;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Installs the CLI off the build path, on a small shared pool. Builds hand over the refresh of a stale
+ * installation and keep using the current one, and {@link PeriodicRefresh} refreshes the installations of the
+ * online nodes shortly before they expire. At most one background install per node and tool is queued, and
+ * at most {@link #CONCURRENCY} run at once, so a burst of connecting agents does not saturate the downloads.
+ */
+public final class BackgroundInstaller {
+
+    private static final Logger LOGGER = Logger.getLogger(BackgroundInstaller.class.getName());
+
+    public static final int CONCURRENCY = SystemProperties.getInteger(BackgroundInstaller.class.getName() + ".concurrency", 4);
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final Set<String> PENDING = ConcurrentHashMap.newKeySet();
+
+    private BackgroundInstaller() {
+    }
+
+    /**
+     * Queues the installation of the tool on the node, unless one is already queued or running.
+     *
+     * @param lookAheadMillis how long before its expiry an installation is refreshed
+     * @return true when the installation was queued
+     */
+    static boolean submit(CheckmarxInstaller installer, ToolInstallation tool, Node node, long lookAheadMillis) {
+        return submit(node.getNodeName() + "|" + tool.getName(),
+                String.format("the Checkmarx CLI '%s' on '%s'", tool.getName(), displayName(node)),
+                () -> installer.refresh(tool, node, lookAheadMillis, new LogTaskListener(LOGGER, Level.FINE)));
+    }
+
+    /**
+     * Queues an install on the shared pool, unless one with the same key is already queued or running.
+     *
+     * @param description what is installed, for the log
+     * @return true when the install was queued
+     */
+    public static boolean submit(String key, String description, Install install) {
+        if (!PENDING.add(key)) {
+            return false;
+        }
+        try {
+            EXECUTOR.execute(() -> {
+                try {
+                    install.run();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Could not install " + description, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    PENDING.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            PENDING.remove(key);
+            throw e;
+        }
+        return true;
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(CONCURRENCY, CONCURRENCY, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Checkmarx CLI installer"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static String displayName(Node node) {
+        return node.getNodeName().isEmpty() ? "built-in" : node.getNodeName();
+    }
+
+    /**
+     * Refreshes the CLI installations of the online nodes that expire before the next run.
+     */
+    @Extension
+    public static class PeriodicRefresh extends AsyncPeriodicWork {
+
+        private static final long RECURRENCE_MILLIS = TimeUnit.MINUTES.toMillis(
+                SystemProperties.getLong(PeriodicRefresh.class.getName() + ".recurrenceMinutes", 60L));
+
+        public PeriodicRefresh() {
+            super("Checkmarx CLI refresh");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return RECURRENCE_MILLIS;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) throws IOException, InterruptedException {
+            Jenkins jenkins = Jenkins.get();
+            CheckmarxInstallation[] installations = jenkins
+                    .getDescriptorByType(CheckmarxScanBuilder.CheckmarxScanBuilderDescriptor.class)
+                    .getInstallations();
+            List<Node> nodes = new ArrayList<>(jenkins.getNodes());
+            nodes.add(jenkins);
+
+            for (CheckmarxInstallation installation : installations) {
+                for (CheckmarxInstaller installer : getInstallers(installation)) {
+                    for (Node node : nodes) {
+                        Computer computer = node.toComputer();
+                        if (computer == null || computer.isOffline() || !installer.appliesTo(node)) {
+                            continue;
+                        }
+                        try {
+                            if (installer.isRefreshDue(installation, node, RECURRENCE_MILLIS, listener)) {
+                                submit(installer, installation, node, RECURRENCE_MILLIS);
+                            }
+                        } catch (IOException e) {
+                            listener.getLogger().printf("Could not check the Checkmarx CLI '%s' on '%s': %s%n",
+                                    installation.getName(), displayName(node), e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Installs the CLI on agents as soon as they connect, for the installers with pre-warming enabled, so the
+     * first build on a freshly provisioned agent does not pay for the download.
+     */
+    @Extension
+    public static class PrewarmOnConnect extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer computer, TaskListener listener) {
+            Node node = computer.getNode();
+            Jenkins jenkins = Jenkins.getInstanceOrNull();
+            if (node == null || jenkins == null) {
+                return;
+            }
+            CheckmarxInstallation[] installations = jenkins
+                    .getDescriptorByType(CheckmarxScanBuilder.CheckmarxScanBuilderDescriptor.class)
+                    .getInstallations();
+            for (CheckmarxInstallation installation : installations) {
+                for (CheckmarxInstaller installer : getInstallers(installation)) {
+                    try {
+                        if (installer.isPrewarmedOn(node)) {
+                            submit(installer, installation, node, 0);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        LOGGER.log(Level.WARNING, String.format("Invalid pre-warm label expression '%s' for the Checkmarx CLI '%s'",
+                                installer.getPrewarmLabel(), installation.getName()), e);
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Install {
+        void run() throws IOException, InterruptedException;
+    }
+
+    static List<CheckmarxInstaller> getInstallers(ToolInstallation installation) {
+        List<CheckmarxInstaller> installers = new ArrayList<>();
+        InstallSourceProperty source = installation.getProperties().get(InstallSourceProperty.class);
+        if (source == null) {
+            return installers;
+        }
+        for (ToolInstaller installer : source.installers) {
+            if (installer instanceof CheckmarxInstaller) {
+                installers.add((CheckmarxInstaller) installer);
+            }
+        }
+        return installers;
+    }
+}
@@ -49,7 +49,7 @@ public class CheckmarxInstallation extends ToolInstallation implements Environme
         if (this.getProperties().size() == 0) return this.getHome();
 
         final VirtualChannel channel = launcher.getChannel();
-        return channel == null ? null : channel.call(new MasterToSlaveCallable<String, IOException>() {
+        return channel == null ? null : NodeToolCache.getExecutable(channel, this.getHome(), new MasterToSlaveCallable<String, IOException>() {
             @Override
             public String call() throws IOException {
                 return CheckmarxInstallation.this.resolveExecutable(Platform.current());
@@ -63,7 +63,7 @@ public class CheckmarxInstallation extends ToolInstallation implements Environme
             return null;
         }
         final String wrapperFileName = platform.checkmarxWrapperFileName;
-        Path executable = Paths.get(root).resolve(wrapperFileName);
+        Path executable = InstallationLayout.resolveActive(Paths.get(root).toFile()).toPath().resolve(wrapperFileName);
         if (!executable.toFile().exists()) {
             throw new IOException(format("Could not find executable <%s>", wrapperFileName));
         }
@@ -5,22 +5,21 @@ import com.checkmarx.jenkins.logger.CxLoggerAdapter;
 import com.checkmarx.jenkins.PluginUtils;
 import com.checkmarx.jenkins.exception.CheckmarxException;
 import com.checkmarx.jenkins.tools.internal.DownloadService;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import com.checkmarx.jenkins.tools.internal.MirrorSource;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Functions;
+import hudson.model.Label;
 import hudson.model.Node;
 import hudson.model.TaskListener;
 import hudson.remoting.VirtualChannel;
 import hudson.tools.ToolInstallation;
 import hudson.tools.ToolInstaller;
 import hudson.tools.ToolInstallerDescriptor;
+import jenkins.MasterToSlaveFileCallable;
 import jenkins.security.MasterToSlaveCallable;
 import lombok.Getter;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
@@ -33,6 +32,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.*;
 import java.net.*;
@@ -40,8 +40,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static hudson.Util.fixEmptyAndTrim;
 import static java.lang.String.format;
@@ -51,14 +54,31 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class CheckmarxInstaller extends ToolInstaller {
 
+    private static final Logger LOGGER = Logger.getLogger(CheckmarxInstaller.class.getName());
+
     private static final String INSTALLED_FROM = ".installedFrom";
     private static final String TIMESTAMP_FILE = ".timestamp";
     public static final String cliDefaultVersion = "2.3.41";
     private static final String cliVersionFileName = "cli.version";
+    private static final long DEFAULT_UPDATE_POLICY_INTERVAL_HOURS = 24;
+    private static final long DEFAULT_CACHE_BUDGET_MEGABYTES = 1024;
+    private static final long DEFAULT_CACHE_MAX_AGE_DAYS = 30;
     @Getter
     private String version;
     @Getter
     private final Long updatePolicyIntervalHours;
+    @Getter
+    private boolean downloadOnController;
+    @Getter
+    private String controllerCacheDirectory;
+    @Getter
+    private String mirrorUrl;
+    private Long cacheBudgetMegabytes;
+    private Long cacheMaxAgeDays;
+    @Getter
+    private boolean prewarmOnConnect;
+    @Getter
+    private String prewarmLabel;
     private CxLoggerAdapter log;
 
     @DataBoundConstructor
@@ -68,20 +88,128 @@ public class CheckmarxInstaller extends ToolInstaller {
         this.updatePolicyIntervalHours = updatePolicyIntervalHours;
     }
 
+    /**
+     * Downloads the archive once on the controller and copies it to the agents over the remoting channel.
+     */
+    @DataBoundSetter
+    public void setDownloadOnController(boolean downloadOnController) {
+        this.downloadOnController = downloadOnController;
+    }
+
+    @DataBoundSetter
+    public void setControllerCacheDirectory(String controllerCacheDirectory) {
+        this.controllerCacheDirectory = fixEmptyAndTrim(controllerCacheDirectory);
+    }
+
+    /**
+     * Resolves the archives and their checksums from an internal mirror instead of GitHub.
+     *
+     * @param mirrorUrl a directory on the controller or the base URL of an HTTP repository
+     */
+    @DataBoundSetter
+    public void setMirrorUrl(String mirrorUrl) {
+        this.mirrorUrl = fixEmptyAndTrim(mirrorUrl);
+    }
+
+    /**
+     * Disk space allowed for the CLI versions kept side by side on each node.
+     */
+    public long getCacheBudgetMegabytes() {
+        return cacheBudgetMegabytes != null ? cacheBudgetMegabytes : DEFAULT_CACHE_BUDGET_MEGABYTES;
+    }
+
+    @DataBoundSetter
+    public void setCacheBudgetMegabytes(Long cacheBudgetMegabytes) {
+        this.cacheBudgetMegabytes = cacheBudgetMegabytes;
+    }
+
+    /**
+     * Days after which a CLI version no installation used is removed from the node.
+     */
+    public long getCacheMaxAgeDays() {
+        return cacheMaxAgeDays != null ? cacheMaxAgeDays : DEFAULT_CACHE_MAX_AGE_DAYS;
+    }
+
+    @DataBoundSetter
+    public void setCacheMaxAgeDays(Long cacheMaxAgeDays) {
+        this.cacheMaxAgeDays = cacheMaxAgeDays;
+    }
+
+    /**
+     * Installs the CLI in the background as soon as a matching agent connects.
+     */
+    @DataBoundSetter
+    public void setPrewarmOnConnect(boolean prewarmOnConnect) {
+        this.prewarmOnConnect = prewarmOnConnect;
+    }
+
+    @DataBoundSetter
+    public void setPrewarmLabel(String prewarmLabel) {
+        this.prewarmLabel = fixEmptyAndTrim(prewarmLabel);
+    }
+
+    /**
+     * @return true when the CLI should be installed on the node as soon as it connects
+     */
+    public boolean isPrewarmedOn(Node node) {
+        if (!prewarmOnConnect || !appliesTo(node)) {
+            return false;
+        }
+        return prewarmLabel == null || Label.parseExpression(prewarmLabel).matches(node);
+    }
+
     @Override
     public FilePath performInstallation(ToolInstallation toolInstallation, Node node, TaskListener taskListener) throws IOException, InterruptedException {
         log = new CxLoggerAdapter(taskListener.getLogger());
         String versionToInstall = getVersionNumber();
         FilePath expected = preferredLocation(toolInstallation, node);
 
-        if (isUpToDate(expected, log)) {
+        long installationAge = getInstallationAge(expected, log, true);
+        if (installationAge >= 0 && installationAge < getUpdateIntervalMillis()) {
             log.info("Checkmarx installation is UP-TO-DATE");
             return expected;
         }
+        if (installationAge >= 0) {
+            // the build keeps using the current binary, the new one is switched to atomically once staged
+            log.info("Checkmarx installation update is due, it is refreshed in the background");
+            BackgroundInstaller.submit(this, toolInstallation, node, 0);
+            return expected;
+        }
+
+        try (InstallLock.Lease lease = InstallLock.acquire(node.getNodeName(), expected.getRemote(), log)) {
+            if (getInstallationAge(expected, log, true) >= 0) {
+                log.info("Checkmarx installation was installed by another build and is UP-TO-DATE");
+                return expected;
+            }
 
-        log.info("Installing Checkmarx AST CLI tool (version '{}')", fixEmptyAndTrim(versionToInstall));
+            log.info("Installing Checkmarx AST CLI tool (version '{}')", fixEmptyAndTrim(versionToInstall));
 
-        return installCheckmarxCliAsSingleBinary(versionToInstall, expected, node, taskListener);
+            return installCheckmarxCliAsSingleBinary(versionToInstall, expected, node, taskListener, true);
+        }
+    }
+
+    /**
+     * @return true when the CLI is installed on the node and its update is due within the given look-ahead
+     */
+    boolean isRefreshDue(ToolInstallation toolInstallation, Node node, long lookAheadMillis, TaskListener listener) throws IOException, InterruptedException {
+        long installationAge = getInstallationAge(preferredLocation(toolInstallation, node), new CxLoggerAdapter(listener.getLogger()), false);
+        return installationAge >= 0 && installationAge >= getUpdateIntervalMillis() - lookAheadMillis;
+    }
+
+    /**
+     * Installs the CLI again when its update is due within the given look-ahead. The current installation stays
+     * active until the new one is staged. A refresh is no use of the CLI, so it leaves the store usage untouched.
+     */
+    void refresh(ToolInstallation toolInstallation, Node node, long lookAheadMillis, TaskListener listener) throws IOException, InterruptedException {
+        CxLoggerAdapter logger = new CxLoggerAdapter(listener.getLogger());
+        FilePath expected = preferredLocation(toolInstallation, node);
+        try (InstallLock.Lease lease = InstallLock.acquire(node.getNodeName(), expected.getRemote(), logger)) {
+            long installationAge = getInstallationAge(expected, logger, false);
+            if (installationAge >= 0 && installationAge < getUpdateIntervalMillis() - lookAheadMillis) {
+                return;
+            }
+            installCheckmarxCliAsSingleBinary(getVersionNumber(), expected, node, listener, false);
+        }
     }
 
     public String getVersionNumber() {
@@ -114,10 +242,14 @@ public class CheckmarxInstaller extends ToolInstaller {
     }
 
 
-    private boolean isUpToDate(FilePath expectedLocation, CxLoggerAdapter log) throws IOException, InterruptedException {
+    /**
+     * @param markUsed true when a build is about to run the CLI, to record the use in the store
+     * @return the milliseconds elapsed since the last installation, or -1 when the CLI is not installed
+     */
+    private long getInstallationAge(FilePath expectedLocation, CxLoggerAdapter log, boolean markUsed) throws IOException, InterruptedException {
         FilePath marker = expectedLocation.child(TIMESTAMP_FILE);
-        if (!marker.exists()) {
-            return false;
+        if (!marker.exists() || !expectedLocation.act(new CheckActive(markUsed))) {
+            return -1;
         }
 
         String content = StringUtils.chomp(marker.readToString());
@@ -131,37 +263,89 @@ public class CheckmarxInstaller extends ToolInstaller {
         }
         long timestampNow = Instant.now().toEpochMilli();
 
-        long timestampDifference = timestampNow - timestampFromFile;
-        if (timestampDifference <= 0) {
-            return true;
+        return Math.max(0, timestampNow - timestampFromFile);
+    }
+
+    private long getUpdateIntervalMillis() {
+        return TimeUnit.HOURS.toMillis(updatePolicyIntervalHours != null ? updatePolicyIntervalHours : DEFAULT_UPDATE_POLICY_INTERVAL_HOURS);
+    }
+
+    private static FilePath getStore(Node node, FilePath expected) {
+        FilePath root = node.getRootPath();
+        return root != null ? root.child("tools").child(InstallationLayout.STORE_DIRECTORY) : expected.sibling(InstallationLayout.STORE_DIRECTORY);
+    }
+
+    /**
+     * @return true when the store entry already holds the extracted archive with the given checksum, or any
+     * extracted archive when the checksum is unknown
+     */
+    private static boolean isStored(FilePath entry, String checksum) throws IOException, InterruptedException {
+        if (checksum != null) {
+            return entry.child(InstallationLayout.contentDirectoryName(checksum)).child(InstallationLayout.COMPLETE_FILE).exists();
         }
-        long updateInterval = TimeUnit.HOURS.toMillis(updatePolicyIntervalHours);
-        return timestampDifference < updateInterval;
+        FilePath pointer = entry.child(InstallationLayout.CURRENT_FILE);
+        return pointer.exists() && entry.child(pointer.readToString().trim()).child(InstallationLayout.COMPLETE_FILE).exists();
     }
 
-    private FilePath installCheckmarxCliAsSingleBinary(String version, FilePath expected, Node node, TaskListener log) throws IOException, InterruptedException {
+    private FilePath installCheckmarxCliAsSingleBinary(String version, FilePath expected, Node node, TaskListener log, boolean markUsed) throws IOException, InterruptedException {
         final VirtualChannel nodeChannel = node.getChannel();
         if (nodeChannel == null) {
             throw new IOException(format("Node '%s' is offline", node.getDisplayName()));
         }
 
-        Platform platform = nodeChannel.call(new GetPlatform(node.getDisplayName()));
+        Platform platform = NodeToolCache.getPlatform(nodeChannel, new GetPlatform(node.getDisplayName()));
 
         try {
             String proxyStr = PluginUtils.getProxy();
             if (StringUtils.isNotEmpty(proxyStr)) {
                 log.getLogger().println("Installer using proxy: " + proxyStr);
             }
-            URL checkmarxDownloadUrl = DownloadService.getDownloadUrlForCli(version, platform);
+            String fileName = DownloadService.buildFileName(version, platform);
+            URL checkmarxDownloadUrl;
+            String checksum;
+            File controllerArchive = null;
+            if (mirrorUrl != null) {
+                MirrorSource mirror = new MirrorSource(mirrorUrl);
+                log.getLogger().println("Installer using mirror: " + mirror);
+                checkmarxDownloadUrl = mirror.getDownloadUrl(version, fileName);
+                checksum = mirror.getChecksum(version, fileName, proxyStr);
+                controllerArchive = mirror.getLocalArchive(version, fileName);
+            } else {
+                checkmarxDownloadUrl = DownloadService.getDownloadUrlForCli(version, platform);
+                checksum = DownloadService.getChecksum(version, fileName);
+            }
 
             expected.mkdirs();
-            nodeChannel.call(new Downloader(checkmarxDownloadUrl, proxyStr,
-                    expected.child(DownloadService.buildFileName(version, platform)),
-                    expected.child(platform.checkmarxWrapperFileName)
-            ));
+            if (checksum == null) {
+                log.getLogger().println("No published checksum found for " + fileName + ", the archive will not be verified");
+                LOGGER.log(Level.WARNING, format("Installing %s on %s without checksum, the archive is not verified", fileName, node.getDisplayName()));
+            }
+
+            FilePath entry = getStore(node, expected).child(InstallationLayout.storeEntryName(version, platform));
+            InstallTarget target = new InstallTarget(expected, entry, platform.checkmarxWrapperFileName,
+                    getCacheBudgetMegabytes() * 1024 * 1024, TimeUnit.DAYS.toMillis(getCacheMaxAgeDays()), markUsed);
+
+            // store entries are shared by all the installations of the node
+            try (InstallLock.Lease entryLease = InstallLock.acquire(node.getNodeName(), entry.getRemote(), new CxLoggerAdapter(log.getLogger()))) {
+                entry.mkdirs();
+                if (isStored(entry, checksum)) {
+                    log.getLogger().println("Checkmarx CLI " + fileName + " is already downloaded and verified");
+                    nodeChannel.call(new Extractor(target, null, checksum));
+                } else if (controllerArchive != null || downloadOnController) {
+                    File archive = controllerArchive != null
+                            ? controllerArchive
+                            : CliArchiveCache.getArchive(checkmarxDownloadUrl, fileName, checksum, controllerCacheDirectory, proxyStr);
+                    log.getLogger().println("Copying Checkmarx CLI from the controller: " + archive.getAbsolutePath());
+                    new FilePath(archive).copyTo(entry.child(fileName));
+                    nodeChannel.call(new Extractor(target, entry.child(fileName), checksum));
+                } else {
+                    nodeChannel.call(new Downloader(checkmarxDownloadUrl, proxyStr, target, fileName, checksum));
+                }
+            }
 
             expected.child(INSTALLED_FROM).write(checkmarxDownloadUrl.toString(), UTF_8.name());
             expected.child(TIMESTAMP_FILE).write(valueOf(Instant.now().toEpochMilli()), UTF_8.name());
+            NodeToolCache.invalidateExecutables();
         } catch (Exception ex) {
             log.getLogger().println("Checkmarx Security tool could not installed: " + ex.getMessage());
             throw new ToolDetectionException("Could not install Checkmarx CLI from binary", ex);
@@ -203,103 +387,246 @@ public class CheckmarxInstaller extends ToolInstaller {
         }
     }
 
-    private static class Downloader extends MasterToSlaveCallable<Void, IOException> {
+    /**
+     * Tells whether the active directory of the installation still exists, and records its use in the store when
+     * asked to.
+     */
+    private static class CheckActive extends MasterToSlaveFileCallable<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean markUsed;
+
+        CheckActive(boolean markUsed) {
+            this.markUsed = markUsed;
+        }
+
+        @Override
+        public Boolean invoke(File home, VirtualChannel channel) throws IOException {
+            return markUsed ? InstallationLayout.markUsed(home) : InstallationLayout.isActive(home);
+        }
+    }
+
+    /**
+     * Where an archive is installed on the node: its entry in the shared store, the installation pointing to it,
+     * and the eviction policy applied to the store afterwards.
+     */
+    private static final class InstallTarget implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final FilePath home;
+        private final FilePath entry;
+        private final String executableName;
+        private final long budgetBytes;
+        private final long maxAgeMillis;
+        private final boolean markUsed;
+
+        InstallTarget(FilePath home, FilePath entry, String executableName, long budgetBytes, long maxAgeMillis, boolean markUsed) {
+            this.home = home;
+            this.entry = entry;
+            this.executableName = executableName;
+            this.budgetBytes = budgetBytes;
+            this.maxAgeMillis = maxAgeMillis;
+            this.markUsed = markUsed;
+        }
+
+        File entryDir() {
+            return new File(entry.getRemote());
+        }
+
+        /**
+         * Activates the directory in the store entry, points the installation to it and evicts unused entries. The
+         * entry is recorded as used only for the install of a build, the installation pointing to it protects it
+         * from eviction anyway.
+         */
+        void activate(String directoryName) throws IOException {
+            final File entryDir = entryDir();
+            InstallationLayout.activate(entryDir, directoryName);
+            InstallationLayout.activate(new File(home.getRemote()), new File(entryDir, directoryName).getAbsolutePath());
+            if (markUsed) {
+                InstallationLayout.touch(entryDir);
+            }
+            InstallationLayout.evict(entryDir.getParentFile(), budgetBytes, maxAgeMillis, entryDir);
+        }
+    }
+
+    /**
+     * Verifies and extracts an archive already present on the node into the store, then activates it.
+     * Without archive, the already extracted directory of the store entry is activated.
+     */
+    private static class Extractor extends MasterToSlaveCallable<Void, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final InstallTarget target;
+        private final FilePath archive;
+        private final String checksum;
+
+        Extractor(InstallTarget target, FilePath archive, String checksum) {
+            this.target = target;
+            this.archive = archive;
+            this.checksum = checksum;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            final String directoryName;
+            if (archive == null) {
+                directoryName = checksum != null
+                        ? InstallationLayout.contentDirectoryName(checksum)
+                        : InstallationLayout.resolveActive(target.entryDir()).getName();
+            } else {
+                final File archiveFile = new File(archive.getRemote());
+                try (InputStream stream = Files.newInputStream(archiveFile.toPath())) {
+                    directoryName = InstallationLayout.stage(stream, archiveFile.getName(), checksum, target.executableName, target.entryDir());
+                } finally {
+                    Files.deleteIfExists(archiveFile.toPath());
+                }
+            }
+            target.activate(directoryName);
+            return null;
+        }
+    }
+
+    static class Downloader extends MasterToSlaveCallable<Void, IOException> {
         private static final long serialVersionUID = 1L;
+        private static final String PARTIAL_SUFFIX = ".part";
 
         private final URL downloadUrl;
-        private final FilePath output;
-        private final FilePath executableFile;
+        private final InstallTarget target;
+        private final String archiveName;
+        private final String checksum;
         private final String proxy;
 
-        Downloader(URL downloadUrl, String proxy, FilePath output, FilePath executableFile) {
+        Downloader(URL downloadUrl, String proxy, InstallTarget target, String archiveName, String checksum) {
             this.downloadUrl = downloadUrl;
-            this.output = output;
-            this.executableFile = executableFile;
+            this.target = target;
+            this.archiveName = archiveName;
+            this.checksum = checksum;
             this.proxy = proxy;
         }
 
+        /**
+         * Extracts and hashes the archive in a single pass while it downloads, keeping the bytes in a partial file
+         * of the store entry. When the transfer fails midway, or a partial file is left by an earlier installation,
+         * the download is resumed with range requests and the completed file is verified and extracted.
+         */
         @Override
         public Void call() throws IOException {
-            final File downloadedFile = new File(output.getRemote());
+            final File entryDir = target.entryDir();
+            final File partial = new File(entryDir, archiveName + PARTIAL_SUFFIX);
+            String directoryName = partial.exists() ? null : streamAndStage(partial);
+            if (directoryName == null) {
+                try {
+                    copyURLToFile(downloadUrl, proxy, partial, 10000, 10000);
+                } catch (CheckmarxException | URISyntaxException e) {
+                    throw new ToolDetectionException(format("failed to download file by URL %s", downloadUrl), e);
+                }
+                try {
+                    directoryName = InstallationLayout.stage(partial, checksum, target.executableName, entryDir);
+                } catch (IOException e) {
+                    // a corrupt download must not be resumed
+                    Files.deleteIfExists(partial.toPath());
+                    throw e;
+                }
+            }
+            Files.deleteIfExists(partial.toPath());
+            target.activate(directoryName);
+            return null;
+        }
+
+        /**
+         * @return the extracted directory, or null when the download has to be resumed
+         */
+        private String streamAndStage(File partial) throws IOException {
             try {
-                copyURLToFile(downloadUrl, proxy, downloadedFile, 10000, 10000);
-                extract(downloadedFile.getAbsolutePath(), downloadedFile.getParent());
-            } catch (ArchiveException | CompressorException e) {
-                throw new IOException(format("Could not extract cli: %s", downloadedFile.getAbsolutePath()));
-            } catch (CheckmarxException | URISyntaxException e) {
-                throw new RuntimeException(e);
+                OkHttpClient client = new ProxyHttpClient().getHttpClient(proxy, 10000, 10000);
+                try (InputStream archive = new RangeDownloader(client, downloadUrl).open(partial)) {
+                    return InstallationLayout.stage(archive, archiveName, checksum, target.executableName, target.entryDir());
+                }
+            } catch (ToolDetectionException e) {
+                // checksum mismatch or unsafe entry, a corrupt download must not be resumed
+                Files.deleteIfExists(partial.toPath());
+                throw e;
+            } catch (IOException | URISyntaxException | CheckmarxException e) {
+                LOGGER.log(Level.FINE, format("Download of %s failed midway, resuming it", downloadUrl), e);
+                return null;
             }
+        }
 
-            final File cxExecutable = new File(executableFile.getRemote());
+        static void setExecutable(File cxExecutable) throws IOException {
             // set execute permission
             if (!Functions.isWindows() && cxExecutable.isFile()) {
                 boolean result = cxExecutable.setExecutable(true, false);
 
                 if (!result) {
-                    throw new IOException(format("Could not set executable flag for the file: %s", downloadedFile.getAbsolutePath()));
+                    throw new IOException(format("Could not set executable flag for the file: %s", cxExecutable.getAbsolutePath()));
                 }
             }
-            return null;
         }
 
-        @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+        /**
+         * Downloads with range requests, resuming an existing partial destination file.
+         */
         public static void copyURLToFile(URL source, String proxyStr, File destination, int connectionTimeoutMillis, int readTimeoutMillis) throws IOException, URISyntaxException, CheckmarxException {
             OkHttpClient client = new ProxyHttpClient().getHttpClient(proxyStr, connectionTimeoutMillis, readTimeoutMillis);
-            Request request = new Request.Builder().url(source).build();
-            Response response = client.newCall(request).execute();
-            ResponseBody responseBody = response.body();
-            InputStream stream = responseBody.byteStream();
             try {
-                FileUtils.copyInputStreamToFile(stream, destination);
-            } catch (Throwable e) {
-                throw new ToolDetectionException("failed to download file by URL", e);
-            } finally {
-                if (stream != null) {
-                    stream.close();
-                }
+                new RangeDownloader(client, source).download(destination);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(format("Download of %s was interrupted", source));
             }
         }
 
         public static void extract(String srcFile, String dest) throws ArchiveException, IOException, CompressorException {
-            FileInputStream fileInputStream = new FileInputStream(srcFile);
-            ArchiveInputStream archiveInputStream = generateArchiveInputStream(fileInputStream, srcFile);
+            try (InputStream fileInputStream = Files.newInputStream(Paths.get(srcFile))) {
+                extract(fileInputStream, srcFile, new File(dest));
+            }
+        }
 
-            File outputFile = new File(dest);
-            boolean outputFileExisted = outputFile.exists() || outputFile.mkdirs();
+        /**
+         * Extracts an archive read in a single pass, then reads the source to its end so that a digest computed
+         * on it covers the whole archive. Entries resolving outside of the destination are rejected.
+         */
+        static void extract(InputStream source, String archiveName, File dest) throws ArchiveException, IOException, CompressorException {
+            boolean outputFileExisted = dest.exists() || dest.mkdirs();
             if (!outputFileExisted) {
                 throw new IOException("Unable to create path");
             }
 
-            ArchiveEntry nextEntry;
-            while ((nextEntry = archiveInputStream.getNextEntry()) != null) {
-                File tempFile = new File(dest, nextEntry.getName());
-                if (nextEntry.isDirectory()) {
-                    boolean folderExisted = tempFile.exists() || tempFile.mkdirs();
-                    if (!folderExisted) {
-                        throw new IOException("Unable to create path");
+            String destPath = dest.getCanonicalPath() + File.separator;
+            try (ArchiveInputStream archiveInputStream = generateArchiveInputStream(source, archiveName)) {
+                ArchiveEntry nextEntry;
+                while ((nextEntry = archiveInputStream.getNextEntry()) != null) {
+                    File tempFile = new File(dest, nextEntry.getName());
+                    if (!tempFile.getCanonicalPath().startsWith(destPath)) {
+                        throw new ToolDetectionException(format("Archive entry %s is outside of the target directory", nextEntry.getName()));
+                    }
+                    if (nextEntry.isDirectory()) {
+                        boolean folderExisted = tempFile.exists() || tempFile.mkdirs();
+                        if (!folderExisted) {
+                            throw new IOException("Unable to create path");
+                        }
+                    } else {
+                        try (OutputStream fos = FileUtils.openOutputStream(tempFile)) {
+                            IOUtils.copy(archiveInputStream, fos);
+                        }
                     }
-                } else {
-                    FileOutputStream fos = FileUtils.openOutputStream(tempFile);
-                    IOUtils.copy(archiveInputStream, fos);
-                    fos.close();
                 }
+                IOUtils.consume(source);
             }
-
-            archiveInputStream.close();
-            fileInputStream.close();
         }
 
-        private static ArchiveInputStream generateArchiveInputStream(FileInputStream fis, String srcFile) throws ArchiveException, CompressorException {
-            String extension = FilenameUtils.getExtension(srcFile);
+        private static ArchiveInputStream generateArchiveInputStream(InputStream source, String archiveName) throws ArchiveException, CompressorException {
+            String extension = FilenameUtils.getExtension(archiveName).toLowerCase(Locale.ENGLISH);
             ArchiveStreamFactory asf = new ArchiveStreamFactory();
+            InputStream buffered = new BufferedInputStream(source, 64 * 1024);
 
-            if (extension.toLowerCase().endsWith("tgz") || extension.toLowerCase().endsWith("gz")) {
-                CompressorInputStream cis = new CompressorStreamFactory().createCompressorInputStream(CompressorStreamFactory.GZIP, new BufferedInputStream(fis));
+            if (extension.endsWith("tgz") || extension.endsWith("gz")) {
+                CompressorInputStream cis = new CompressorStreamFactory().createCompressorInputStream(CompressorStreamFactory.GZIP, buffered);
 
-                return asf.createArchiveInputStream(new BufferedInputStream(cis));
+                return asf.createArchiveInputStream(ArchiveStreamFactory.TAR, cis);
             }
 
-            return asf.createArchiveInputStream(new BufferedInputStream(fis));
+            return asf.createArchiveInputStream(ArchiveStreamFactory.ZIP, buffered);
         }
     }
 }
@@ -0,0 +1,106 @@
+package com.checkmarx.jenkins.tools;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static java.lang.String.format;
+
+/**
+ * Downloads each CLI archive once on the controller, or into a configured mirror directory, so agents can
+ * copy it from there over the remoting channel instead of downloading it from GitHub on their own.
+ * Archives are verified against their published checksum before being put in the cache.
+ * Concurrent requests for the same archive share a single download.
+ */
+public final class CliArchiveCache {
+
+    static final String DEFAULT_CACHE_DIRECTORY = "caches/checkmarx-ast-cli";
+
+    private static final Map<String, CompletableFuture<File>> DOWNLOADS = new ConcurrentHashMap<>();
+
+    private CliArchiveCache() {
+    }
+
+    /**
+     * @param checksum       the published SHA-256 of the archive, or null when none is available
+     * @param cacheDirectory the directory holding the archives, or blank for {@code $JENKINS_HOME/caches/checkmarx-ast-cli}
+     * @return the archive on the controller file system
+     */
+    public static File getArchive(URL downloadUrl, String fileName, String checksum, String cacheDirectory, String proxy) throws IOException, InterruptedException {
+        File archive = new File(getCacheRoot(cacheDirectory), fileName);
+        if (archive.isFile()) {
+            return archive;
+        }
+
+        String key = archive.getAbsolutePath();
+        CompletableFuture<File> download = new CompletableFuture<>();
+        CompletableFuture<File> inFlight = DOWNLOADS.putIfAbsent(key, download);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            if (!archive.isFile()) {
+                download(downloadUrl, proxy, checksum, archive);
+            }
+            download.complete(archive);
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            DOWNLOADS.remove(key, download);
+        }
+    }
+
+    static File getCacheRoot(String cacheDirectory) {
+        if (StringUtils.isNotBlank(cacheDirectory)) {
+            return new File(cacheDirectory.trim());
+        }
+        return new File(Jenkins.get().getRootDir(), DEFAULT_CACHE_DIRECTORY);
+    }
+
+    private static void download(URL downloadUrl, String proxy, String checksum, File archive) throws IOException {
+        File directory = archive.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(format("Could not create the cache directory %s", directory));
+        }
+
+        // kept after a failed download so the next attempt resumes it
+        File partial = new File(directory, archive.getName() + ".part");
+        try {
+            CheckmarxInstaller.Downloader.copyURLToFile(downloadUrl, proxy, partial, 10000, 10000);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(format("Could not download %s", downloadUrl), e);
+        }
+        if (checksum != null && !checksum.equalsIgnoreCase(InstallationLayout.sha256(partial))) {
+            Files.deleteIfExists(partial.toPath());
+            throw new ToolDetectionException(format("Checksum mismatch for %s", archive.getName()));
+        }
+        Files.move(partial.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static File await(CompletableFuture<File> download) throws IOException, InterruptedException {
+        try {
+            return download.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.checkmarx.jenkins.tools;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import com.checkmarx.jenkins.logger.CxLoggerAdapter;
+import jenkins.util.SystemProperties;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.String.format;
+
+/**
+ * Single-flight lock per node and directory, either an installation home or a store entry shared by the
+ * installations: one caller installs the CLI while the others wait and then reuse the result. Covers the builds
+ * as well as the installs running in the background. A lock is dropped once no one holds or waits for it.
+ */
+public final class InstallLock {
+
+    static final long TIMEOUT_MINUTES = SystemProperties.getLong(InstallLock.class.getName() + ".timeoutMinutes", 10L);
+
+    private static final Map<String, InstallLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile String holder;
+    // leases and waiters, only updated while LOCKS maps the key to this lock
+    private int users;
+
+    private InstallLock(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Waits until no one else installs into the given location of the node.
+     *
+     * @throws ToolDetectionException when the lock is still held after the timeout
+     */
+    public static Lease acquire(String nodeName, String location, CxLoggerAdapter log) throws ToolDetectionException, InterruptedException {
+        return acquire(nodeName, location, log, TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Waits until no one else installs into the given location of the node, for at most the given time. The
+     * thread holding the lock may acquire it again.
+     *
+     * @throws ToolDetectionException when the lock is still held after the timeout
+     */
+    public static Lease acquire(String nodeName, String location, CxLoggerAdapter log, long timeout, TimeUnit unit)
+            throws ToolDetectionException, InterruptedException {
+        InstallLock installLock = LOCKS.compute(key(nodeName, location), (k, existing) -> {
+            InstallLock l = existing != null ? existing : new InstallLock(k);
+            l.users++;
+            return l;
+        });
+
+        boolean acquired = false;
+        try {
+            if (!installLock.lock.tryLock()) {
+                log.info("Waiting for '{}' to finish installing the Checkmarx CLI into {}", installLock.holder, location);
+                if (!installLock.lock.tryLock(timeout, unit)) {
+                    throw new ToolDetectionException(format("Timed out after %d %s waiting for '%s' to install the Checkmarx CLI into %s",
+                            timeout, unit.name().toLowerCase(Locale.ENGLISH), installLock.holder, location));
+                }
+            }
+            acquired = true;
+        } finally {
+            if (!acquired) {
+                installLock.release();
+            }
+        }
+        installLock.holder = Thread.currentThread().getName();
+        return installLock.new Lease();
+    }
+
+    /**
+     * @return true while someone holds or waits for the lock of the location of the node
+     */
+    public static boolean isInUse(String nodeName, String location) {
+        return LOCKS.containsKey(key(nodeName, location));
+    }
+
+    private static String key(String nodeName, String location) {
+        return nodeName + "|" + location;
+    }
+
+    private void release() {
+        LOCKS.computeIfPresent(key, (k, l) -> --l.users == 0 ? null : l);
+    }
+
+    public final class Lease implements AutoCloseable {
+
+        private Lease() {
+        }
+
+        @Override
+        public void close() {
+            if (lock.getHoldCount() == 1) {
+                holder = null;
+            }
+            lock.unlock();
+            release();
+        }
+    }
+}
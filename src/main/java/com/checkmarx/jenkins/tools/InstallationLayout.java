@@ -0,0 +1,307 @@
+package com.checkmarx.jenkins.tools;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * On-disk layout of a CLI installation. Every archive is extracted into a directory named after its SHA-256,
+ * and the {@value #CURRENT_FILE} pointer naming the active directory is swapped atomically, so a build never
+ * sees a half-written executable.
+ * <pre>
+ * home/
+ *   .current             name of the active directory
+ *   sha256-&lt;hex&gt;/cx   extracted archive, with a .complete marker once fully extracted
+ * </pre>
+ * The archives are extracted once per node into a shared store holding one entry per version and platform, laid
+ * out like a home, and the pointer of each installation holds the absolute path of its entry's active directory.
+ * Entries not used for a while, or beyond the disk budget, are evicted least recently used first, unless recently
+ * used or still pointed to by an installation.
+ * <pre>
+ * tools/checkmarx-cli-store/
+ *   2.3.41_linux/        .current, .lastUsed and sha256-&lt;hex&gt;/cx
+ * </pre>
+ * Installations made before this layout keep the executable directly in the home directory.
+ */
+public final class InstallationLayout {
+
+    public static final String CURRENT_FILE = ".current";
+    public static final String STORE_DIRECTORY = "checkmarx-cli-store";
+    static final String COMPLETE_FILE = ".complete";
+    static final String LAST_USED_FILE = ".lastUsed";
+    private static final String CONTENT_PREFIX = "sha256-";
+    private static final String STAGING_PREFIX = ".staging-";
+    static final long IN_USE_GRACE_MILLIS = TimeUnit.HOURS.toMillis(24);
+    private static final int REFERENCE_SEARCH_DEPTH = 3;
+
+    private InstallationLayout() {
+    }
+
+    public static String contentDirectoryName(String sha256) {
+        return CONTENT_PREFIX + sha256.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return the directory holding the active executable, the home itself for installations without pointer
+     */
+    public static File resolveActive(File home) throws IOException {
+        File current = new File(home, CURRENT_FILE);
+        if (!current.isFile()) {
+            return home;
+        }
+        String directoryName = new String(Files.readAllBytes(current.toPath()), StandardCharsets.UTF_8).trim();
+        File directory = new File(directoryName);
+        return directory.isAbsolute() ? directory : new File(home, directoryName);
+    }
+
+    public static String storeEntryName(String version, Platform platform) {
+        return version + "_" + platform.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Checks that the active directory of the installation still exists, without recording a use, e.g. for the
+     * background refreshes which must not keep unused versions from being evicted.
+     *
+     * @return false when the active directory is gone, e.g. evicted from the store
+     */
+    public static boolean isActive(File home) throws IOException {
+        return resolveActive(home).isDirectory();
+    }
+
+    /**
+     * Checks that the active directory of the installation still exists and records its use in the store.
+     *
+     * @return false when the active directory is gone, e.g. evicted from the store
+     */
+    public static boolean markUsed(File home) throws IOException {
+        File active = resolveActive(home);
+        if (!active.isDirectory()) {
+            return false;
+        }
+        if (!active.getParentFile().equals(home)) {
+            touch(active.getParentFile());
+        }
+        return true;
+    }
+
+    static void touch(File entry) throws IOException {
+        FileUtils.touch(new File(entry, LAST_USED_FILE));
+    }
+
+    /**
+     * Deletes the store entries unused for longer than the maximum age, then the least recently used ones until
+     * the store fits in the budget. The given entry is always kept, and so are the entries used within the last
+     * {@link #IN_USE_GRACE_MILLIS} milliseconds, which a build may still run from, and the entries an installation
+     * of the node points to.
+     */
+    public static void evict(File store, long budgetBytes, long maxAgeMillis, File keep) {
+        File[] entries = store.listFiles(File::isDirectory);
+        if (entries == null) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(InstallationLayout::lastUsed));
+        Set<File> referenced = referencedEntries(store);
+
+        long total = 0;
+        for (File entry : entries) {
+            total += FileUtils.sizeOfDirectory(entry);
+        }
+        long now = System.currentTimeMillis();
+        for (File entry : entries) {
+            if (entry.equals(keep) || referenced.contains(entry.getAbsoluteFile()) || now - lastUsed(entry) < IN_USE_GRACE_MILLIS) {
+                continue;
+            }
+            if (now - lastUsed(entry) > maxAgeMillis || total > budgetBytes) {
+                long size = FileUtils.sizeOfDirectory(entry);
+                // best effort, an executable still in use cannot be removed on Windows
+                if (FileUtils.deleteQuietly(entry)) {
+                    total -= size;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the store entries the installations next to the store point to, looked up in the directories
+     * installations are created in by default
+     */
+    private static Set<File> referencedEntries(File store) {
+        Set<File> referenced = new HashSet<>();
+        File root = store.getAbsoluteFile();
+        File tools = root.getParentFile();
+        if (tools == null) {
+            return referenced;
+        }
+        try (Stream<Path> pointers = Files.walk(tools.toPath(), REFERENCE_SEARCH_DEPTH)) {
+            pointers.filter(path -> CURRENT_FILE.equals(String.valueOf(path.getFileName())))
+                    .filter(path -> !path.startsWith(root.toPath()))
+                    .forEach(path -> {
+                        try {
+                            File entry = resolveActive(path.getParent().toFile()).getParentFile();
+                            if (entry != null && root.equals(entry.getParentFile())) {
+                                referenced.add(entry);
+                            }
+                        } catch (IOException e) {
+                            // an unreadable pointer does not reference anything
+                        }
+                    });
+        } catch (IOException | UncheckedIOException e) {
+            // best effort, the grace period still protects the entries in use
+        }
+        return referenced;
+    }
+
+    private static long lastUsed(File entry) {
+        File marker = new File(entry, LAST_USED_FILE);
+        return marker.isFile() ? marker.lastModified() : entry.lastModified();
+    }
+
+    public static boolean isComplete(File home, String sha256) {
+        return new File(new File(home, contentDirectoryName(sha256)), COMPLETE_FILE).isFile();
+    }
+
+    /**
+     * Verifies the archive and extracts it into its content-addressed directory, unless that already exists.
+     * Reads the archive twice, so it is only used for downloads that were resumed.
+     *
+     * @param expectedSha256 the published checksum, or null when none is available
+     * @return the name of the content-addressed directory
+     */
+    public static String stage(File archive, String expectedSha256, String executableName, File home) throws IOException {
+        String sha256 = sha256(archive);
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+            throw new ToolDetectionException(format("Checksum mismatch for %s: expected %s but was %s", archive.getName(), expectedSha256, sha256));
+        }
+
+        if (isComplete(home, sha256)) {
+            return contentDirectoryName(sha256);
+        }
+
+        File staging = new File(home, STAGING_PREFIX + UUID.randomUUID());
+        try {
+            CheckmarxInstaller.Downloader.extract(archive.getAbsolutePath(), staging.getAbsolutePath());
+            return moveIntoPlace(staging, sha256, executableName, home);
+        } catch (ArchiveException | CompressorException e) {
+            throw new IOException(format("Could not extract cli: %s", archive.getAbsolutePath()), e);
+        } finally {
+            FileUtils.deleteQuietly(staging);
+        }
+    }
+
+    /**
+     * Extracts the archive in a single pass while it is being read, straight from the download on the agent or
+     * from the archive copied from the controller cache, and hashes it on the way. The extracted files are only
+     * moved into place once the checksum matches.
+     *
+     * @param archiveName    the file name of the archive, telling its format
+     * @param expectedSha256 the published checksum, or null when none is available
+     * @return the name of the content-addressed directory
+     */
+    public static String stage(InputStream archive, String archiveName, String expectedSha256, String executableName, File home) throws IOException {
+        MessageDigest digest = newDigest();
+        File staging = new File(home, STAGING_PREFIX + UUID.randomUUID());
+        try (DigestInputStream stream = new DigestInputStream(archive, digest)) {
+            CheckmarxInstaller.Downloader.extract(stream, archiveName, staging);
+            String sha256 = toHex(digest.digest());
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+                throw new ToolDetectionException(format("Checksum mismatch for %s: expected %s but was %s", archiveName, expectedSha256, sha256));
+            }
+            return moveIntoPlace(staging, sha256, executableName, home);
+        } catch (ArchiveException | CompressorException e) {
+            throw new IOException(format("Could not extract cli: %s", archiveName), e);
+        } finally {
+            FileUtils.deleteQuietly(staging);
+        }
+    }
+
+    private static String moveIntoPlace(File staging, String sha256, String executableName, File home) throws IOException {
+        String directoryName = contentDirectoryName(sha256);
+        File target = new File(home, directoryName);
+        if (new File(target, COMPLETE_FILE).isFile()) {
+            return directoryName;
+        }
+
+        CheckmarxInstaller.Downloader.setExecutable(new File(staging, executableName));
+        Files.createFile(new File(staging, COMPLETE_FILE).toPath());
+        if (target.exists()) {
+            // left over from an interrupted installation
+            FileUtils.deleteDirectory(target);
+        }
+        Files.move(staging.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return directoryName;
+    }
+
+    /**
+     * Atomically points the installation to the given content-addressed directory, named relative to the home or
+     * by its absolute path, and removes the directories that are neither the new nor the previously active one.
+     */
+    public static void activate(File home, String directoryName) throws IOException {
+        File previous = resolveActive(home);
+        Path pointer = new File(home, CURRENT_FILE).toPath();
+        Path temporaryPointer = new File(home, CURRENT_FILE + "." + UUID.randomUUID()).toPath();
+        Files.write(temporaryPointer, directoryName.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryPointer, pointer, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        File[] contents = home.listFiles((dir, name) -> name.startsWith(CONTENT_PREFIX));
+        if (contents == null) {
+            return;
+        }
+        for (File content : contents) {
+            if (!content.getName().equals(directoryName) && !content.equals(previous)) {
+                // best effort, an executable still in use cannot be removed on Windows
+                FileUtils.deleteQuietly(content);
+            }
+        }
+    }
+
+    public static String sha256(File file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = newDigest();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return toHex(digest.digest());
+        }
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.checkmarx.jenkins.tools;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers per node the platform and the resolved CLI executables, so builds do not pay a remoting round trip
+ * for them every time. Entries are keyed by the remoting channel, so a reconnected node starts afresh, and are
+ * dropped when a node goes online or offline and after every installation.
+ */
+public final class NodeToolCache {
+
+    private static final Map<VirtualChannel, Map<String, Object>> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final String PLATFORM_KEY = "platform";
+    private static final String EXECUTABLE_KEY_PREFIX = "executable:";
+
+    private NodeToolCache() {
+    }
+
+    public static Platform getPlatform(VirtualChannel channel, Callable<Platform, IOException> lookup) throws IOException, InterruptedException {
+        return get(channel, PLATFORM_KEY, lookup);
+    }
+
+    public static String getExecutable(VirtualChannel channel, String home, Callable<String, IOException> lookup) throws IOException, InterruptedException {
+        return get(channel, EXECUTABLE_KEY_PREFIX + home, lookup);
+    }
+
+    /**
+     * Drops the resolved executables, e.g. after an installation switched the active directory.
+     */
+    public static void invalidateExecutables() {
+        synchronized (CACHE) {
+            for (Map<String, Object> entries : CACHE.values()) {
+                entries.keySet().removeIf(key -> key.startsWith(EXECUTABLE_KEY_PREFIX));
+            }
+        }
+    }
+
+    static void invalidate(VirtualChannel channel) {
+        if (channel != null) {
+            CACHE.remove(channel);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T get(VirtualChannel channel, String key, Callable<T, IOException> lookup) throws IOException, InterruptedException {
+        Map<String, Object> entries;
+        synchronized (CACHE) {
+            entries = CACHE.computeIfAbsent(channel, c -> new ConcurrentHashMap<>());
+        }
+        Object value = entries.get(key);
+        if (value == null) {
+            value = channel.call(lookup);
+            if (value != null) {
+                entries.put(key, value);
+            }
+        }
+        return (T) value;
+    }
+
+    @Extension
+    public static class Invalidator extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            invalidate(c.getChannel());
+        }
+
+        @Override
+        public void onOffline(Computer c, OfflineCause cause) {
+            invalidate(c.getChannel());
+        }
+    }
+}
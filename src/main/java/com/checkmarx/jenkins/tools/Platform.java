@@ -2,14 +2,24 @@ package com.checkmarx.jenkins.tools;
 
 import com.checkmarx.jenkins.exception.ToolDetectionException;
 import lombok.NonNull;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
 
 public enum Platform {
     LINUX( "linux_x64.tar.gz", "cx"),
+    LINUX_ARM64( "linux_arm64.tar.gz", "cx"),
     MAC_OS( "darwin_x64.tar.gz", "cx"),
+    MAC_OS_ARM64( "darwin_arm64.tar.gz", "cx"),
     WINDOWS( "windows_x64.zip", "cx.exe");
 
+    private static final Logger LOGGER = Logger.getLogger(Platform.class.getName());
+    private static final List<String> X86_ARCHITECTURES = Arrays.asList("x86", "i386", "i486", "i586", "i686");
+
     public final String packageExtension;
     public final String checkmarxWrapperFileName;
 
@@ -23,16 +33,42 @@ public enum Platform {
         return Platform.detect(System.getProperties());
     }
 
+    /**
+     * Detects the native platform from the operating system and the CPU architecture. The CLI is a static binary,
+     * so the Linux builds run on glibc and musl distributions alike. No x64 build is picked for an ARM machine.
+     * A 32-bit JVM reports x86 even on a 64-bit machine, so the x64 build is picked for it as it always was.
+     */
     @NonNull
-    private static Platform detect(@NonNull final Map<Object, Object> systemProperties) throws ToolDetectionException {
-        final String arch = ((String) systemProperties.get("os.name")).toLowerCase(Locale.ENGLISH);
-        if (arch.contains("linux")) {
-            return Platform.LINUX;
-        } else if (arch.contains("mac os x") || arch.contains("darwin") || arch.contains("osx")) {
-            return Platform.MAC_OS;
-        } else if (arch.contains("windows")) {
-            return Platform.WINDOWS;
+    public static Platform detect(@NonNull final Map<Object, Object> systemProperties) throws ToolDetectionException {
+        final String os = ((String) systemProperties.get("os.name")).toLowerCase(Locale.ENGLISH);
+        final String arch = String.valueOf(systemProperties.get("os.arch")).toLowerCase(Locale.ENGLISH);
+        final boolean x86 = X86_ARCHITECTURES.contains(arch);
+        final boolean x64 = arch.equals("amd64") || arch.equals("x86_64") || x86;
+        final boolean arm64 = arch.equals("aarch64") || arch.equals("arm64");
+
+        if (x86) {
+            LOGGER.warning(format("The JVM reports the %s architecture on %s, installing the x64 Checkmarx CLI, which needs a 64-bit machine", arch, os));
+        }
+
+        if (os.contains("linux")) {
+            if (x64) {
+                return Platform.LINUX;
+            } else if (arm64) {
+                return Platform.LINUX_ARM64;
+            }
+        } else if (os.contains("mac os x") || os.contains("darwin") || os.contains("osx")) {
+            if (x64) {
+                return Platform.MAC_OS;
+            } else if (arm64) {
+                return Platform.MAC_OS_ARM64;
+            }
+        } else if (os.contains("windows")) {
+            if (x64) {
+                return Platform.WINDOWS;
+            }
+        } else {
+            throw new ToolDetectionException(format("The %s operating system is not supported by the Checkmarx CLI", os));
         }
-        throw new ToolDetectionException(arch + " is not supported CPU type");
+        throw new ToolDetectionException(format("No native Checkmarx CLI build is available for %s on %s", os, arch));
     }
-}
\ No newline at end of file
+}
@@ -8,19 +8,62 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+import com.checkmarx.jenkins.PluginUtils;
 import com.checkmarx.jenkins.exception.CheckmarxException;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
 import okhttp3.*;
 import org.apache.commons.lang.StringUtils;
 
 import javax.annotation.Nullable;
 
 
+/**
+ * Hands out {@link OkHttpClient} instances shared plugin-wide per proxy, credentials and timeouts.
+ * All of them are derived from one base client, so they share the connection pool, the dispatcher threads
+ * and the TLS sessions.
+ */
 public class ProxyHttpClient {
 
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static final OkHttpClient BASE_CLIENT = new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .build();
+    private static final Map<String, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+
     public OkHttpClient getHttpClient(String proxyString, int connectionTimeoutMillis, int readTimeoutMillis) throws URISyntaxException, CheckmarxException {
-        OkHttpClient.Builder okClientBuilder = new OkHttpClient.Builder()
+        String key = proxyString + "|" + connectionTimeoutMillis + "|" + readTimeoutMillis;
+        OkHttpClient client = CLIENTS.get(key);
+        if (client == null) {
+            client = createHttpClient(proxyString, connectionTimeoutMillis, readTimeoutMillis);
+            OkHttpClient existing = CLIENTS.putIfAbsent(key, client);
+            if (existing != null) {
+                client = existing;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Drops the shared clients and their idle connections, e.g. after the proxy configuration changed.
+     */
+    public static void invalidate() {
+        CLIENTS.clear();
+        BASE_CLIENT.connectionPool().evictAll();
+    }
+
+    private static OkHttpClient createHttpClient(String proxyString, int connectionTimeoutMillis, int readTimeoutMillis) throws URISyntaxException, CheckmarxException {
+        OkHttpClient.Builder okClientBuilder = BASE_CLIENT.newBuilder()
                 .connectTimeout(connectionTimeoutMillis, TimeUnit.MILLISECONDS)
                 .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
         if (proxyString != null) {
@@ -55,4 +98,25 @@ public class ProxyHttpClient {
     private static boolean isValidProxy(String proxyHost, int proxyPort) {
         return StringUtils.isNotEmpty(proxyHost) && (proxyPort >= 10) && (proxyPort <= 65535);
     }
+
+    /**
+     * Invalidates the shared clients when the global {@code HTTP_PROXY} node property changes.
+     */
+    @Extension
+    public static class ProxyChangeListener extends SaveableListener {
+
+        private volatile String lastProxy;
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (!(o instanceof Jenkins)) {
+                return;
+            }
+            String proxy = PluginUtils.getProxy();
+            if (!Objects.equals(proxy, lastProxy)) {
+                lastProxy = proxy;
+                invalidate();
+            }
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package com.checkmarx.jenkins.tools;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import jenkins.util.SystemProperties;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.commons.io.input.TeeInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.String.format;
+
+/**
+ * Downloads a file with HTTP range requests, so a transfer failing midway resumes from the bytes already on disk
+ * instead of restarting from zero. Large files can be split in chunks fetched in parallel and reassembled.
+ * Each request is retried with exponential backoff, and the reassembled file is checked against the announced size.
+ * Partial files are kept after a failure, so the next download of the same file resumes them. A file can also be
+ * {@linkplain #open opened} and read while it downloads, keeping the bytes read for a resume.
+ */
+public final class RangeDownloader {
+
+    static final int MAX_ATTEMPTS = SystemProperties.getInteger(RangeDownloader.class.getName() + ".maxAttempts", 5);
+    static final int PARALLEL_CHUNKS = SystemProperties.getInteger(RangeDownloader.class.getName() + ".parallelChunks", 1);
+    static final long MIN_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final OkHttpClient client;
+    private final URL source;
+    private final int parallelChunks;
+    private final long initialBackoffMillis;
+
+    RangeDownloader(OkHttpClient client, URL source) {
+        this(client, source, PARALLEL_CHUNKS, INITIAL_BACKOFF_MILLIS);
+    }
+
+    public RangeDownloader(OkHttpClient client, URL source, int parallelChunks, long initialBackoffMillis) {
+        this.client = client;
+        this.source = source;
+        this.parallelChunks = Math.max(1, parallelChunks);
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public void download(File destination) throws IOException, InterruptedException {
+        long length = -1;
+        boolean rangesSupported = false;
+        try (Response response = execute(new Request.Builder().url(source).head().build())) {
+            if (response.isSuccessful()) {
+                String contentLength = response.header("Content-Length");
+                length = contentLength != null ? Long.parseLong(contentLength) : -1;
+                rangesSupported = "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+            }
+        } catch (NumberFormatException | IOException e) {
+            // the GET requests tell whether the server honours ranges
+        }
+
+        int chunks = rangesSupported && length > 0 ? (int) Math.min(parallelChunks, Math.max(1, length / MIN_CHUNK_SIZE)) : 1;
+        if (chunks == 1) {
+            downloadRange(destination, 0, length > 0 ? length - 1 : -1);
+        } else {
+            downloadChunks(destination, length, chunks);
+        }
+
+        if (length > 0 && destination.length() != length) {
+            Files.deleteIfExists(destination.toPath());
+            throw new ToolDetectionException(format("Downloaded %d bytes from %s instead of %d", destination.length(), source, length));
+        }
+    }
+
+    /**
+     * Opens the whole file for reading in a single pass, e.g. to extract it while it downloads. The bytes read are
+     * written to the partial file, so a transfer failing midway is resumed from it with {@link #download}.
+     */
+    public InputStream open(File partial) throws IOException {
+        Response response = execute(new Request.Builder().url(source).build());
+        ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            response.close();
+            throw new IOException(format("failed to download file by URL %s: HTTP %d", source, response.code()));
+        }
+        try {
+            return new TeeInputStream(body.byteStream(), Files.newOutputStream(partial.toPath()), true);
+        } catch (IOException e) {
+            response.close();
+            throw e;
+        }
+    }
+
+    private void downloadChunks(File destination, long length, int chunks) throws IOException, InterruptedException {
+        List<File> parts = new ArrayList<>();
+        List<Future<Void>> futures = new ArrayList<>();
+        long chunkSize = (length + chunks - 1) / chunks;
+        ExecutorService executor = Executors.newFixedThreadPool(chunks);
+        try {
+            for (int i = 0; i < chunks; i++) {
+                File part = new File(destination.getParentFile(), destination.getName() + ".chunk" + i);
+                long first = i * chunkSize;
+                long last = Math.min(length, first + chunkSize) - 1;
+                parts.add(part);
+                futures.add(executor.submit(() -> {
+                    downloadRange(part, first, last);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (OutputStream out = Files.newOutputStream(destination.toPath())) {
+            for (File part : parts) {
+                Files.copy(part.toPath(), out);
+            }
+        }
+        for (File part : parts) {
+            Files.deleteIfExists(part.toPath());
+        }
+    }
+
+    /**
+     * Downloads the given inclusive byte range into the file, resuming from its current size.
+     *
+     * @param last the last byte of the range, or -1 for the end of the file
+     */
+    private void downloadRange(File file, long first, long last) throws IOException, InterruptedException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(Math.min(MAX_BACKOFF_MILLIS, initialBackoffMillis << (attempt - 1)));
+            }
+            long downloaded = file.isFile() ? file.length() : 0;
+            if (last >= 0 && downloaded == last - first + 1) {
+                return;
+            }
+            if (last >= 0 && downloaded > last - first + 1) {
+                // left over from a download of another size
+                Files.delete(file.toPath());
+                downloaded = 0;
+            }
+            try {
+                transfer(file, first, first + downloaded, last);
+                return;
+            } catch (ToolDetectionException e) {
+                throw e;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        throw new ToolDetectionException(format("failed to download file by URL %s after %d attempts", source, MAX_ATTEMPTS), failure);
+    }
+
+    private void transfer(File file, long first, long from, long last) throws IOException {
+        Request.Builder request = new Request.Builder().url(source);
+        if (from > 0 || last >= 0) {
+            request.header("Range", "bytes=" + from + "-" + (last >= 0 ? last : ""));
+        }
+        try (Response response = execute(request.build())) {
+            ResponseBody body = response.body();
+            if (response.code() == 416 && from > first) {
+                // the previous attempt already got the whole file
+                return;
+            }
+            if (response.code() >= 500 || response.code() == 429) {
+                throw new IOException(format("HTTP %d", response.code()));
+            }
+            if (!response.isSuccessful() || body == null) {
+                throw new ToolDetectionException(format("failed to download file by URL %s: HTTP %d", source, response.code()));
+            }
+            boolean partial = response.code() == 206;
+            if (!partial && first > 0) {
+                throw new ToolDetectionException(format("The server does not support range requests for %s", source));
+            }
+            // without range support the whole file is sent again
+            StandardOpenOption mode = partial && from > first ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+            try (InputStream in = body.byteStream();
+                 OutputStream out = Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    private Response execute(Request request) throws IOException {
+        return client.newCall(request).execute();
+    }
+}
@@ -1,23 +1,30 @@
 package com.checkmarx.jenkins.tools.internal;
 
+import com.checkmarx.jenkins.exception.ToolDetectionException;
 import com.checkmarx.jenkins.tools.Platform;
 import lombok.NonNull;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
-import org.apache.commons.io.IOUtils;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static java.lang.String.format;
 
 public class DownloadService {
 
+    private static final Logger LOGGER = Logger.getLogger(DownloadService.class.getName());
+
     private static final String CHECKMARX_FILE_NAME = "ast-cli";
     private static final String CHECKMARX_CLI_REPO = "https://api.github.com/repos/Checkmarx/ast-cli";
     private static final String CHECKMARX_RELEASES_TAGS = CHECKMARX_CLI_REPO +  "/releases/tags/%s";
     private static final String CHECKMARX_DOWNLOAD = "https://github.com/Checkmarx/ast-cli/releases/download/%s/%s";
+    private static final String CHECKMARX_CHECKSUMS_FILE_NAME = CHECKMARX_FILE_NAME + "_%s_checksums.txt";
 
     private DownloadService() {
         // squid:S1118
@@ -28,11 +35,68 @@ public class DownloadService {
 
         final JSONObject release = JSONObject.fromObject(jsonString);
         final String tagName = (String) release.get("tag_name");
+        final String fileName = buildFileName(tagName, platform);
+        checkAssetPublished(release, fileName);
 
-        String url = format(CHECKMARX_DOWNLOAD, tagName, buildFileName(tagName, platform));
+        String url = format(CHECKMARX_DOWNLOAD, tagName, fileName);
         return new URL(url);
     }
 
+    /**
+     * Fails fast when the release lists its assets but has no build for the platform, e.g. an arm64 build of an
+     * older release.
+     */
+    public static void checkAssetPublished(JSONObject release, String fileName) throws ToolDetectionException {
+        JSONArray assets = release.optJSONArray("assets");
+        if (assets == null || assets.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < assets.size(); i++) {
+            JSONObject asset = assets.optJSONObject(i);
+            if (asset != null && fileName.equals(asset.optString("name"))) {
+                return;
+            }
+        }
+        throw new ToolDetectionException(format("Checkmarx CLI release %s does not provide %s", release.optString("tag_name"), fileName));
+    }
+
+    /**
+     * Looks up the SHA-256 of a release archive in the checksums file published with the release.
+     *
+     * @return the checksum, or null when the release has no checksums file, does not list the archive, or the
+     * checksums file cannot be fetched
+     */
+    public static String getChecksum(@NonNull String version, @NonNull String fileName) {
+        String checksumsFileName = format(CHECKMARX_CHECKSUMS_FILE_NAME, version);
+        try {
+            String checksums = loadJSON(format(CHECKMARX_DOWNLOAD, version, checksumsFileName));
+            String checksum = findChecksum(checksums, fileName);
+            if (checksum == null) {
+                LOGGER.log(Level.WARNING, format("%s does not list %s", checksumsFileName, fileName));
+            }
+            return checksum;
+        } catch (FileNotFoundException e) {
+            LOGGER.log(Level.WARNING, format("Checkmarx CLI release %s has no %s", version, checksumsFileName));
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, format("Could not fetch %s: %s", checksumsFileName, e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Parses a checksums file made of {@code <sha256>  <file name>} lines.
+     */
+    public static String findChecksum(String checksums, String fileName) {
+        for (String line : checksums.split("\\r?\\n")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length == 2 && parts[1].replaceFirst("^\\*", "").equals(fileName)) {
+                return parts[0].toLowerCase(Locale.ENGLISH);
+            }
+        }
+        return null;
+    }
+
     public static String buildFileName(String tagName, Platform platform) {
         if (Objects.isNull(platform)) {
             throw new IllegalArgumentException("Platform cannot be null");
@@ -44,7 +108,6 @@ public class DownloadService {
     }
 
     private static String loadJSON(final String source) throws IOException {
-        URL sourceUrl = new URL(source);
-        return IOUtils.toString(sourceUrl, StandardCharsets.UTF_8);
+        return ReleaseMetadataCache.get().fetch(source, ReleaseMetadataCache.currentProxy());
     }
 }
@@ -0,0 +1,91 @@
+package com.checkmarx.jenkins.tools.internal;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import lombok.NonNull;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import static java.lang.String.format;
+
+/**
+ * Internal mirror of the CLI releases, either a directory on the controller or an HTTP repository such as
+ * Nexus or Artifactory, used instead of GitHub. The mirror holds an {@value #INDEX_FILE_NAME} listing the
+ * available archives with their SHA-256, and each archive under a directory named after its version:
+ * <pre>
+ * index.json                             {"versions": {"2.3.41": {"ast-cli_2.3.41_linux_x64.tar.gz": "&lt;sha256&gt;"}}}
+ * 2.3.41/ast-cli_2.3.41_linux_x64.tar.gz
+ * </pre>
+ */
+public class MirrorSource {
+
+    public static final String INDEX_FILE_NAME = "index.json";
+
+    private final String location;
+
+    public MirrorSource(@NonNull String location) {
+        this.location = StringUtils.removeEnd(location.trim(), "/");
+    }
+
+    public boolean isHttp() {
+        String lowerCase = location.toLowerCase(Locale.ENGLISH);
+        return lowerCase.startsWith("http://") || lowerCase.startsWith("https://");
+    }
+
+    public URL getDownloadUrl(@NonNull String version, @NonNull String fileName) throws IOException {
+        if (isHttp()) {
+            return new URL(location + "/" + version + "/" + fileName);
+        }
+        return getLocalArchive(version, fileName).toURI().toURL();
+    }
+
+    /**
+     * @return the archive on the controller file system, or null for an HTTP mirror
+     */
+    public File getLocalArchive(@NonNull String version, @NonNull String fileName) {
+        if (isHttp()) {
+            return null;
+        }
+        return new File(new File(location, version), fileName);
+    }
+
+    /**
+     * @return the SHA-256 of the archive listed in the mirror index
+     * @throws ToolDetectionException when the mirror does not hold the archive
+     */
+    public String getChecksum(@NonNull String version, @NonNull String fileName, String proxy) throws IOException {
+        JSONObject versions = loadIndex(proxy).optJSONObject("versions");
+        JSONObject archives = versions != null ? versions.optJSONObject(version) : null;
+        String checksum = archives != null ? archives.optString(fileName, null) : null;
+        if (StringUtils.isBlank(checksum)) {
+            throw new ToolDetectionException(format("The mirror %s does not provide %s for version %s", location, fileName, version));
+        }
+        return checksum.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    private JSONObject loadIndex(String proxy) throws IOException {
+        String index;
+        if (isHttp()) {
+            index = ReleaseMetadataCache.get().fetch(location + "/" + INDEX_FILE_NAME, proxy);
+        } else {
+            index = new String(Files.readAllBytes(new File(location, INDEX_FILE_NAME).toPath()), StandardCharsets.UTF_8);
+        }
+        try {
+            return JSONObject.fromObject(index);
+        } catch (JSONException e) {
+            throw new ToolDetectionException(format("Invalid mirror index %s/%s", location, INDEX_FILE_NAME), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return location;
+    }
+}
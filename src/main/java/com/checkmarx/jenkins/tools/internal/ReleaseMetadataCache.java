@@ -0,0 +1,201 @@
+package com.checkmarx.jenkins.tools.internal;
+
+import com.checkmarx.jenkins.PluginUtils;
+import com.checkmarx.jenkins.exception.CheckmarxException;
+import com.checkmarx.jenkins.tools.ProxyHttpClient;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * Caches the release metadata fetched from GitHub on the controller. Entries are served for
+ * {@link #DEFAULT_TTL_MINUTES} minutes, then revalidated with {@code If-None-Match} so an unchanged release costs a
+ * 304 that does not count against the rate limit. When GitHub fails or is unreachable, the last known good
+ * data is served instead. A 404, e.g. for a release published without checksums file, is cached for the same
+ * time. Entries are persisted in {@code $JENKINS_HOME/checkmarx-release-metadata.xml}.
+ */
+public class ReleaseMetadataCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ReleaseMetadataCache.class.getName());
+
+    static final long DEFAULT_TTL_MINUTES = SystemProperties.getLong(ReleaseMetadataCache.class.getName() + ".ttlMinutes", 60L);
+    private static final String STORE_FILE = "checkmarx-release-metadata.xml";
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private static volatile ReleaseMetadataCache instance;
+
+    private final File storeFile;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private boolean loaded;
+
+    /**
+     * @param storeFile where entries are persisted, or null to keep them in memory only
+     */
+    public ReleaseMetadataCache(File storeFile, long ttlMillis) {
+        this.storeFile = storeFile;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static ReleaseMetadataCache get() {
+        ReleaseMetadataCache cache = instance;
+        if (cache == null) {
+            synchronized (ReleaseMetadataCache.class) {
+                if (instance == null) {
+                    Jenkins jenkins = Jenkins.getInstanceOrNull();
+                    instance = new ReleaseMetadataCache(jenkins != null ? new File(jenkins.getRootDir(), STORE_FILE) : null,
+                            TimeUnit.MINUTES.toMillis(DEFAULT_TTL_MINUTES));
+                }
+                cache = instance;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return the body at the given URL, from the cache when it is fresh or cannot be revalidated
+     * @throws FileNotFoundException when the URL was not found, now or within the TTL
+     * @throws IOException when the URL cannot be fetched and nothing is cached for it
+     */
+    public String fetch(String url, String proxy) throws IOException {
+        load();
+        Entry entry = entries.get(url);
+        if (entry != null && isFresh(entry)) {
+            return entry.body(url);
+        }
+
+        synchronized (locks.computeIfAbsent(url, k -> new Object())) {
+            entry = entries.get(url);
+            if (entry != null && isFresh(entry)) {
+                return entry.body(url);
+            }
+            try {
+                Entry fetched = request(url, proxy, entry);
+                entries.put(url, fetched);
+                save();
+                return fetched.body(url);
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                if (entry == null || entry.missing) {
+                    throw e;
+                }
+                LOGGER.log(Level.WARNING, format("Could not revalidate %s, serving the cached release metadata: %s", url, e.getMessage()));
+                return entry.body;
+            }
+        }
+    }
+
+    private boolean isFresh(Entry entry) {
+        return System.currentTimeMillis() - entry.fetchedAt < ttlMillis;
+    }
+
+    private Entry request(String url, String proxy, Entry cached) throws IOException {
+        OkHttpClient client;
+        try {
+            client = new ProxyHttpClient().getHttpClient(proxy, TIMEOUT_MILLIS, TIMEOUT_MILLIS);
+        } catch (URISyntaxException | CheckmarxException e) {
+            throw new IOException(e);
+        }
+
+        Request.Builder request = new Request.Builder().url(url);
+        if (cached != null && cached.etag != null) {
+            request.header("If-None-Match", cached.etag);
+        }
+        try (Response response = client.newCall(request.build()).execute()) {
+            if (response.code() == 304 && cached != null && !cached.missing) {
+                return new Entry(cached.body, cached.etag, System.currentTimeMillis());
+            }
+            if (response.code() == 404) {
+                return Entry.missing(System.currentTimeMillis());
+            }
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException(format("Unexpected response %d from %s", response.code(), url));
+            }
+            return new Entry(body.string(), response.header("ETag"), System.currentTimeMillis());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (storeFile == null || !storeFile.isFile()) {
+            return;
+        }
+        try {
+            Object stored = new XmlFile(storeFile).read();
+            if (stored instanceof Map) {
+                entries.putAll((Map<String, Entry>) stored);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not load the cached release metadata", e);
+        }
+    }
+
+    private synchronized void save() {
+        if (storeFile == null) {
+            return;
+        }
+        try {
+            new XmlFile(storeFile).write(new HashMap<>(entries));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not persist the cached release metadata", e);
+        }
+    }
+
+    static String currentProxy() {
+        return Jenkins.getInstanceOrNull() != null ? PluginUtils.getProxy() : null;
+    }
+
+    private static final class Entry {
+
+        private final String body;
+        private final String etag;
+        private final long fetchedAt;
+        private final boolean missing;
+
+        private Entry(String body, String etag, long fetchedAt) {
+            this(body, etag, fetchedAt, false);
+        }
+
+        private Entry(String body, String etag, long fetchedAt, boolean missing) {
+            this.body = body;
+            this.etag = etag;
+            this.fetchedAt = fetchedAt;
+            this.missing = missing;
+        }
+
+        private static Entry missing(long fetchedAt) {
+            return new Entry(null, null, fetchedAt, true);
+        }
+
+        private String body(String url) throws FileNotFoundException {
+            if (missing) {
+                throw new FileNotFoundException(format("%s was not found", url));
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.ActiveScans;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.flow.FlowDurabilityHint;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.jenkinsci.plugins.workflow.job.properties.DisableResumeJobProperty;
+import org.jenkinsci.plugins.workflow.job.properties.DurabilityHintJobProperty;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ActiveScansTest {
+
+    private static final String SCAN_ID = "3fa85f64-5717-4562-b3fc-2c963f66afa6";
+    private static final String KEPT_SCAN_ID = "9b2e4c1a-7d3f-4e8b-a6c5-1f0d2e3b4a5c";
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @After
+    public void after() {
+        ActiveScans.unregister(SCAN_ID);
+        ActiveScans.unregister(KEPT_SCAN_ID);
+    }
+
+    @Test
+    public void testCancel_withRegisteredScan_ExpectCancelledOnce() throws Exception {
+        AtomicInteger cancellations = new AtomicInteger();
+        ActiveScans.register(SCAN_ID, cancellations::incrementAndGet);
+
+        assertTrue(ActiveScans.cancel(SCAN_ID));
+        assertFalse(ActiveScans.cancel(SCAN_ID));
+        assertEquals(1, cancellations.get());
+    }
+
+    @Test
+    public void testCancel_withUnregisteredScan_ExpectNotCancelled() throws Exception {
+        AtomicInteger cancellations = new AtomicInteger();
+        ActiveScans.register(SCAN_ID, cancellations::incrementAndGet);
+        ActiveScans.unregister(SCAN_ID);
+
+        assertFalse(ActiveScans.cancel(SCAN_ID));
+        assertEquals(0, cancellations.get());
+    }
+
+    @Test
+    public void testCancelAll_withScanKeptOnShutdown_ExpectOnlyOtherScansCancelled() throws Exception {
+        AtomicInteger cancellations = new AtomicInteger();
+        AtomicInteger keptCancellations = new AtomicInteger();
+        ActiveScans.register(SCAN_ID, cancellations::incrementAndGet);
+        ActiveScans.register(KEPT_SCAN_ID, keptCancellations::incrementAndGet, false);
+
+        ActiveScans.cancelAll();
+
+        assertEquals(1, cancellations.get());
+        assertEquals(0, keptCancellations.get());
+        // the kept scan is still registered, so aborting its build still cancels it
+        assertTrue(ActiveScans.cancel(KEPT_SCAN_ID));
+        assertEquals(1, keptCancellations.get());
+    }
+
+    @Test
+    public void testCancelAll_withFailingCancellation_ExpectOtherScansCancelled() throws Exception {
+        AtomicInteger cancellations = new AtomicInteger();
+        ActiveScans.register(SCAN_ID, () -> {
+            throw new IOException("server unreachable");
+        });
+        ActiveScans.register(KEPT_SCAN_ID, cancellations::incrementAndGet);
+
+        ActiveScans.cancelAll();
+
+        assertEquals(1, cancellations.get());
+        assertFalse(ActiveScans.cancel(SCAN_ID));
+    }
+
+    @Test
+    public void testIsResumable_withDurablePipeline_ExpectTrue() throws Exception {
+        WorkflowJob job = pipeline();
+        job.addProperty(new DurabilityHintJobProperty(FlowDurabilityHint.MAX_SURVIVABILITY));
+
+        assertTrue(ActiveScans.isResumable(j.buildAndAssertSuccess(job)));
+    }
+
+    @Test
+    public void testIsResumable_withPerformanceOptimizedPipeline_ExpectFalse() throws Exception {
+        WorkflowJob job = pipeline();
+        job.addProperty(new DurabilityHintJobProperty(FlowDurabilityHint.PERFORMANCE_OPTIMIZED));
+
+        assertFalse(ActiveScans.isResumable(j.buildAndAssertSuccess(job)));
+    }
+
+    @Test
+    public void testIsResumable_withPipelineNotResumed_ExpectFalse() throws Exception {
+        WorkflowJob job = pipeline();
+        job.addProperty(new DisableResumeJobProperty());
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+
+        assertFalse(ActiveScans.isResumable(run));
+    }
+
+    @Test
+    public void testIsResumable_withFreestyleBuild_ExpectFalse() throws Exception {
+        assertFalse(ActiveScans.isResumable(j.buildAndAssertSuccess(j.createFreeStyleProject())));
+    }
+
+    private WorkflowJob pipeline() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition("echo 'scanning'", true));
+        return job;
+    }
+}
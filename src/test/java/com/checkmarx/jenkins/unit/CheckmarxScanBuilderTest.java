@@ -2,12 +2,15 @@ package com.checkmarx.jenkins.unit;
 
 import com.checkmarx.jenkins.CheckmarxScanBuilder;
 import com.checkmarx.jenkins.CheckmarxScanBuilder.CheckmarxScanBuilderDescriptor;
+import com.checkmarx.jenkins.ScanThrottle;
+import com.checkmarx.jenkins.model.ScanConfig;
 import com.checkmarx.jenkins.tools.CheckmarxInstallation;
 import hudson.model.FreeStyleProject;
 import hudson.model.Result;
 import hudson.util.FormValidation;
 import hudson.tasks.Builder;
 import hudson.tools.ToolProperty;
+import jenkins.model.Jenkins;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -15,6 +18,7 @@ import org.junit.rules.TemporaryFolder;
 import org.jvnet.hudson.test.JenkinsRule;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.Assert.*;
@@ -227,4 +231,39 @@ public class CheckmarxScanBuilderTest {
         assertEquals("Auth URL should match", authUrl, descriptor.getBaseAuthUrl());
         assertTrue("Should use authentication URL", descriptor.getUseAuthenticationUrl());
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testFindThrottle_withServerAndTenantLimits_ExpectFirstMatchingLimit() {
+        ScanThrottle tenantLimit = new ScanThrottle("https://ast.example.com", "team-a", 1);
+        ScanThrottle serverLimit = new ScanThrottle("https://ast.example.com/", null, 4);
+        descriptor.setThrottles(Arrays.asList(tenantLimit, serverLimit));
+        ScanConfig scanConfig = new ScanConfig();
+        scanConfig.setServerUrl("https://ast.example.com");
+
+        scanConfig.setTenantName("team-a");
+        assertSame(tenantLimit, descriptor.findThrottle(scanConfig));
+        scanConfig.setTenantName("team-b");
+        assertSame(serverLimit, descriptor.findThrottle(scanConfig));
+        scanConfig.setServerUrl("https://other.example.com");
+        assertNull(descriptor.findThrottle(scanConfig));
+    }
+
+    @Test
+    public void testFindThrottle_withoutLimits_ExpectNull() {
+        ScanConfig scanConfig = new ScanConfig();
+        scanConfig.setServerUrl("https://ast.example.com");
+
+        assertNull(descriptor.findThrottle(scanConfig));
+    }
+
+    @Test
+    public void testUnmarshal_withJobSavedBeforeScanScheduling_ExpectDefaults() {
+        CheckmarxScanBuilder builder = (CheckmarxScanBuilder) Jenkins.XSTREAM2.fromXML(
+                "<com.checkmarx.jenkins.CheckmarxScanBuilder><projectName>app</projectName></com.checkmarx.jenkins.CheckmarxScanBuilder>");
+
+        assertEquals(CheckmarxScanBuilder.DEFAULT_FULL_SCAN_EVERY_BUILDS, builder.getFullScanEveryBuilds());
+        assertEquals(CheckmarxScanBuilder.DEFAULT_FULL_SAST_EVERY_BUILDS, builder.getFullSastEveryBuilds());
+        assertEquals(CheckmarxScanBuilder.DEFAULT_FULL_SAST_EVERY_DAYS, builder.getFullSastEveryDays());
+        assertEquals(CheckmarxScanBuilder.DEFAULT_FULL_SAST_CHANGED_FILES, builder.getFullSastChangedFiles());
+    }
+}
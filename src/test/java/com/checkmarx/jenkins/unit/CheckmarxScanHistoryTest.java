@@ -0,0 +1,175 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.CheckmarxScanHistory;
+import com.checkmarx.jenkins.model.ScanConfig;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CheckmarxScanHistoryTest {
+
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ScanConfig scanConfig;
+
+    @Before
+    public void before() {
+        scanConfig = new ScanConfig();
+        scanConfig.setServerUrl("http://example.com");
+        scanConfig.setTenantName("test-tenant");
+        scanConfig.setProjectName("test-project");
+        scanConfig.setAdditionalOptions("--scan-types sast");
+    }
+
+    @Test
+    public void testCommitKey_withOtherOptions_ExpectOtherKey() {
+        String key = CheckmarxScanHistory.commitKey(scanConfig, "abc123");
+        assertEquals(key, CheckmarxScanHistory.commitKey(scanConfig, "abc123"));
+        assertNotEquals(key, CheckmarxScanHistory.commitKey(scanConfig, "def456"));
+
+        scanConfig.setAdditionalOptions("--scan-types sca");
+        assertNotEquals(key, CheckmarxScanHistory.commitKey(scanConfig, "abc123"));
+    }
+
+    @Test
+    public void testCommitKey_withJobsInOtherWorkspaces_ExpectSameKey() {
+        ScanConfig otherJob = new ScanConfig();
+        otherJob.setServerUrl("http://example.com");
+        otherJob.setTenantName("test-tenant");
+        otherJob.setProjectName("test-project");
+        scanConfig.setAdditionalOptions("--scan-types sast --output-path \"/var/jenkins/workspace/app_main\"");
+        otherJob.setAdditionalOptions("--report-format sarif --scan-types  sast --output-path \"/agent/workspace/app_PR-12\" --output-name pr");
+
+        assertEquals(CheckmarxScanHistory.commitKey(scanConfig, "abc123"), CheckmarxScanHistory.commitKey(otherJob, "abc123"));
+        assertEquals(CheckmarxScanHistory.branchKey(scanConfig), CheckmarxScanHistory.branchKey(otherJob));
+
+        otherJob.setAdditionalOptions("--scan-types sast,sca --output-path \"/agent/workspace/app_PR-12\"");
+        assertNotEquals(CheckmarxScanHistory.commitKey(scanConfig, "abc123"), CheckmarxScanHistory.commitKey(otherJob, "abc123"));
+    }
+
+    @Test
+    public void testReuseOrClaim_withCompletedScan_ExpectScanIdAfterRestart() throws Exception {
+        File store = new File(tempFolder.getRoot(), "history.xml");
+        String key = CheckmarxScanHistory.commitKey(scanConfig, "abc123");
+        CheckmarxScanHistory history = new CheckmarxScanHistory(store, MAX_AGE_MILLIS, 10);
+
+        assertNull(history.reuseOrClaim(key));
+        history.complete(key, "scan-1");
+
+        assertEquals("scan-1", new CheckmarxScanHistory(store, MAX_AGE_MILLIS, 10).reuseOrClaim(key));
+    }
+
+    @Test
+    public void testReuseOrClaim_withScanInFlight_ExpectWaitForSharedScan() throws Exception {
+        CheckmarxScanHistory history = new CheckmarxScanHistory(null, MAX_AGE_MILLIS, 10);
+        String key = CheckmarxScanHistory.commitKey(scanConfig, "abc123");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNull(history.reuseOrClaim(key));
+            Future<String> waiting = executor.submit(() -> history.reuseOrClaim(key));
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+
+            history.complete(key, "scan-1");
+            assertEquals("scan-1", waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReuseOrClaim_withAbandonedScan_ExpectWaitingBuildClaims() throws Exception {
+        CheckmarxScanHistory history = new CheckmarxScanHistory(null, MAX_AGE_MILLIS, 10);
+        String key = CheckmarxScanHistory.commitKey(scanConfig, "abc123");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNull(history.reuseOrClaim(key));
+            Future<String> waiting = executor.submit(() -> history.reuseOrClaim(key));
+            Thread.sleep(100);
+
+            history.abandon(key);
+            assertNull(waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReuseOrClaim_withClaimNeverReported_ExpectClaimedAfterTimeout() throws Exception {
+        CheckmarxScanHistory history = new CheckmarxScanHistory(null, MAX_AGE_MILLIS, 10, 200);
+        String key = CheckmarxScanHistory.commitKey(scanConfig, "abc123");
+
+        assertNull(history.reuseOrClaim(key));
+        assertNull(history.reuseOrClaim(key));
+
+        // the stale claim is gone, the scan of the new claim is shared
+        history.complete(key, "scan-1");
+        assertEquals("scan-1", history.reuseOrClaim(key));
+    }
+
+    @Test
+    public void testComplete_withMoreEntriesThanAllowed_ExpectOldestEvicted() throws Exception {
+        CheckmarxScanHistory history = new CheckmarxScanHistory(null, MAX_AGE_MILLIS, 1);
+        String first = CheckmarxScanHistory.commitKey(scanConfig, "abc123");
+        String second = CheckmarxScanHistory.commitKey(scanConfig, "def456");
+
+        assertNull(history.reuseOrClaim(first));
+        history.complete(first, "scan-1");
+        Thread.sleep(5);
+        assertNull(history.reuseOrClaim(second));
+        history.complete(second, "scan-2");
+
+        assertEquals("scan-2", history.reuseOrClaim(second));
+        assertNull(history.reuseOrClaim(first));
+    }
+
+    @Test
+    public void testFindUnchanged_withSameSourcesDigest_ExpectLastScanOfBranch() {
+        File store = new File(tempFolder.getRoot(), "history.xml");
+        scanConfig.setBranchName("main");
+        String key = CheckmarxScanHistory.branchKey(scanConfig);
+        new CheckmarxScanHistory(store, MAX_AGE_MILLIS, 10).recordSources(key, "scan-1", "digest-1");
+
+        CheckmarxScanHistory history = new CheckmarxScanHistory(store, MAX_AGE_MILLIS, 10);
+        assertEquals("scan-1", history.findUnchanged(key, "digest-1"));
+        assertNull(history.findUnchanged(key, "digest-2"));
+
+        scanConfig.setBranchName("feature");
+        assertNull(history.findUnchanged(CheckmarxScanHistory.branchKey(scanConfig), "digest-1"));
+    }
+
+    @Test
+    public void testRecordEngineScan_withPartialScans_ExpectCountedPerBranch() {
+        File store = new File(tempFolder.getRoot(), "history.xml");
+        scanConfig.setBranchName("main");
+        String main = CheckmarxScanHistory.baselineKey(scanConfig);
+        CheckmarxScanHistory history = new CheckmarxScanHistory(store, MAX_AGE_MILLIS, 10);
+        history.recordEngineScan(main, "scan-0", false);
+        assertEquals(-1, history.getLastAllEnginesScan(main));
+
+        history.recordEngineScan(main, "scan-1", true);
+        history.recordEngineScan(main, "scan-2", false);
+        history.recordEngineScan(main, "scan-3", false);
+
+        CheckmarxScanHistory reloaded = new CheckmarxScanHistory(store, MAX_AGE_MILLIS, 10);
+        assertTrue(reloaded.getLastAllEnginesScan(main) > 0);
+        assertEquals(2, reloaded.getPartialEngineScans(main));
+        scanConfig.setBranchName("feature");
+        assertEquals(-1, reloaded.getLastAllEnginesScan(CheckmarxScanHistory.baselineKey(scanConfig)));
+
+        reloaded.recordEngineScan(main, "scan-4", true);
+        assertEquals(0, reloaded.getPartialEngineScans(main));
+    }
+}
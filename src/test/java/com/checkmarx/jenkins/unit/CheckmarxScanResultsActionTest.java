@@ -0,0 +1,71 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.ast.results.ResultsSummary;
+import com.checkmarx.jenkins.CheckmarxScanResultsAction;
+import com.checkmarx.jenkins.PluginUtils;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.tasks.ArtifactArchiver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class CheckmarxScanResultsActionTest {
+
+    private static final String SUMMARY_JSON = "{\"TotalIssues\":7,\"ScanID\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\","
+            + "\"AddedLater\":{\"by\":\"a newer CLI\"}}";
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testParseResultsSummary_withUnknownFields_ExpectParsed() throws IOException {
+        ResultsSummary summary = CheckmarxScanResultsAction.parseResultsSummary(
+                new ByteArrayInputStream(SUMMARY_JSON.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(7, summary.getTotalIssues());
+        assertEquals("3fa85f64-5717-4562-b3fc-2c963f66afa6", summary.getScanId());
+    }
+
+    @Test
+    public void testGetResultsSummary_withBuildRecordedWithoutSummary_ExpectLoadedFromArchivedReport() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject();
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                build.getWorkspace().child(PluginUtils.CHECKMARX_AST_RESULTS_JSON).write(SUMMARY_JSON, StandardCharsets.UTF_8.name());
+                return true;
+            }
+        });
+        project.getPublishersList().add(new ArtifactArchiver(PluginUtils.CHECKMARX_AST_RESULTS_JSON));
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+
+        CheckmarxScanResultsAction action = new CheckmarxScanResultsAction();
+        build.addAction(action);
+
+        ResultsSummary summary = action.getResultsSummary();
+        assertNotNull(summary);
+        assertEquals(7, summary.getTotalIssues());
+        assertSame(summary, action.getResultsSummary());
+    }
+
+    @Test
+    public void testGetResultsSummary_withoutArchivedReport_ExpectNull() throws Exception {
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+
+        CheckmarxScanResultsAction action = new CheckmarxScanResultsAction();
+        build.addAction(action);
+
+        assertNull(action.getResultsSummary());
+    }
+}
@@ -0,0 +1,156 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.CheckmarxScanStateAction;
+import com.checkmarx.jenkins.CheckmarxScanStateAction.Phase;
+import com.checkmarx.jenkins.model.ScanConfig;
+import hudson.AbortException;
+import hudson.model.FreeStyleBuild;
+import hudson.model.Run;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class CheckmarxScanStateActionTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private ScanConfig scanConfig;
+
+    @Before
+    public void before() {
+        scanConfig = new ScanConfig();
+        scanConfig.setServerUrl("http://example.com");
+        scanConfig.setTenantName("test-tenant");
+        scanConfig.setProjectName("test-project");
+    }
+
+    @Test
+    public void testIsInFlightFor_withScanningScanOfSameProject_ExpectTrue() {
+        CheckmarxScanStateAction state = new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false);
+
+        assertEquals(Phase.SCANNING, state.getPhase());
+        assertTrue(state.isInFlightFor(scanConfig));
+    }
+
+    @Test
+    public void testIsInFlightFor_withOtherProject_ExpectFalse() {
+        CheckmarxScanStateAction state = new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false);
+        ScanConfig other = new ScanConfig();
+        other.setServerUrl("http://example.com");
+        other.setTenantName("test-tenant");
+        other.setProjectName("other-project");
+
+        assertFalse(state.isInFlightFor(other));
+    }
+
+    @Test
+    public void testIsInFlightFor_withCompletedScan_ExpectFalse() throws IOException {
+        Run<?, ?> run = mock(Run.class);
+        CheckmarxScanStateAction state = new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false);
+
+        state.setPhase(run, Phase.COMPLETED);
+
+        verify(run).save();
+        assertFalse(state.isInFlightFor(scanConfig));
+    }
+
+    @Test
+    public void testIsInFlightFor_withFailedScan_ExpectFalse() throws IOException {
+        Run<?, ?> run = mock(Run.class);
+        CheckmarxScanStateAction state = new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false);
+
+        state.setPhase(run, Phase.FAILED);
+
+        verify(run).save();
+        assertFalse(state.isInFlightFor(scanConfig));
+    }
+
+    @Test
+    public void testIsInFlightFor_withOtherBranchOrOptions_ExpectFalse() {
+        scanConfig.setBranchName("main");
+        scanConfig.setAdditionalOptions("--scan-types sast --output-path /ws/a");
+        CheckmarxScanStateAction state = new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false);
+
+        ScanConfig otherOutput = copyOf(scanConfig);
+        otherOutput.setAdditionalOptions("--scan-types sast --output-path /ws/b");
+        assertTrue(state.isInFlightFor(otherOutput));
+
+        ScanConfig otherBranch = copyOf(scanConfig);
+        otherBranch.setBranchName("release");
+        assertFalse(state.isInFlightFor(otherBranch));
+
+        ScanConfig otherOptions = copyOf(scanConfig);
+        otherOptions.setAdditionalOptions("--scan-types sca --output-path /ws/a");
+        assertFalse(state.isInFlightFor(otherOptions));
+    }
+
+    @Test
+    public void testIsInFlightFor_withAsyncScan_ExpectFalse() {
+        CheckmarxScanStateAction state = new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", true);
+
+        assertFalse(state.isInFlightFor(scanConfig));
+    }
+
+    @Test
+    public void testIsInFlightFor_withStateWithoutServerSettings_ExpectFalse() {
+        assertFalse(new CheckmarxScanStateAction("scan-id").isInFlightFor(scanConfig));
+    }
+
+    @Test
+    public void testFindAsync_withTwoAsyncScansInOneRun_ExpectEachFound() throws Exception {
+        FreeStyleBuild run = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        CheckmarxScanStateAction first = CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction("first-scan", scanConfig, "test-cred", "test-installation", true));
+        CheckmarxScanStateAction second = CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction("second-scan", scanConfig, "test-cred", "test-installation", true));
+
+        assertSame(first, CheckmarxScanStateAction.findAsync(run, "first-scan"));
+        assertSame(second, CheckmarxScanStateAction.findAsync(run, "second-scan"));
+        assertSame(second, CheckmarxScanStateAction.findAsync(run, null));
+        assertEquals(2, run.getActions(CheckmarxScanStateAction.class).size());
+    }
+
+    @Test
+    public void testRecord_withSameScanTwice_ExpectReplaced() throws Exception {
+        FreeStyleBuild run = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false));
+        CheckmarxScanStateAction replacement = CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false));
+
+        assertEquals(1, run.getActions(CheckmarxScanStateAction.class).size());
+        assertSame(replacement, CheckmarxScanStateAction.find(run, "scan-id"));
+    }
+
+    @Test
+    public void testFindInFlight_withCompletedAndScanningScans_ExpectScanningOne() throws Exception {
+        FreeStyleBuild run = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        CheckmarxScanStateAction scanning = CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction("scanning-scan", scanConfig, "test-cred", "test-installation", false));
+        CheckmarxScanStateAction completed = CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction("completed-scan", scanConfig, "test-cred", "test-installation", false));
+        completed.setPhase(run, Phase.COMPLETED);
+
+        assertSame(scanning, CheckmarxScanStateAction.findInFlight(run, scanConfig));
+    }
+
+    @Test(expected = AbortException.class)
+    public void testFindAsync_withSynchronousScan_ExpectException() throws Exception {
+        FreeStyleBuild run = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        CheckmarxScanStateAction.record(run, new CheckmarxScanStateAction("scan-id", scanConfig, "test-cred", "test-installation", false));
+
+        CheckmarxScanStateAction.findAsync(run, "scan-id");
+    }
+
+    private static ScanConfig copyOf(ScanConfig scanConfig) {
+        ScanConfig copy = new ScanConfig();
+        copy.setServerUrl(scanConfig.getServerUrl());
+        copy.setTenantName(scanConfig.getTenantName());
+        copy.setProjectName(scanConfig.getProjectName());
+        copy.setBranchName(scanConfig.getBranchName());
+        copy.setAdditionalOptions(scanConfig.getAdditionalOptions());
+        return copy;
+    }
+}
@@ -0,0 +1,64 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.EngineSelection;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EngineSelectionTest {
+
+    @Test
+    public void testRequiredEngines_withOnlyManifestChanges_ExpectScaOnly() {
+        Set<String> engines = EngineSelection.requiredEngines(Arrays.asList("pom.xml", "web/package-lock.json", "App/App.csproj"));
+
+        assertEquals(Collections.singleton(EngineSelection.SCA), engines);
+    }
+
+    @Test
+    public void testRequiredEngines_withSourceAndIacChanges_ExpectSastAndIac() {
+        Set<String> engines = EngineSelection.requiredEngines(Arrays.asList("src/Main.java", "deploy/main.tf", "Dockerfile"));
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList(EngineSelection.SAST, EngineSelection.IAC)), engines);
+    }
+
+    @Test
+    public void testRequiredEngines_withYamlOutsideOfIacDirectories_ExpectSastAndIac() {
+        Set<String> engines = EngineSelection.requiredEngines(Collections.singletonList("src/main/resources/application.yml"));
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList(EngineSelection.SAST, EngineSelection.IAC)), engines);
+    }
+
+    @Test
+    public void testRequiredEngines_withYamlInIacDirectories_ExpectIacOnly() {
+        Set<String> engines = EngineSelection.requiredEngines(Arrays.asList("deploy/k8s/deployment.yaml", "charts/app/values.yml"));
+
+        assertEquals(Collections.singleton(EngineSelection.IAC), engines);
+    }
+
+    @Test
+    public void testApplyToOptions_withoutScanTypes_ExpectNull() {
+        Set<String> engines = new LinkedHashSet<>(Arrays.asList(EngineSelection.SAST, EngineSelection.SCA));
+
+        assertFalse(EngineSelection.hasScanTypes("--sast-preset-name Default"));
+        assertNull(EngineSelection.applyToOptions("--sast-preset-name Default", engines));
+        assertNull(EngineSelection.applyToOptions(null, engines));
+    }
+
+    @Test
+    public void testApplyToOptions_withScanTypes_ExpectNarrowedAndOtherEnginesKept() {
+        Set<String> engines = Collections.singleton(EngineSelection.SCA);
+
+        assertEquals("--scan-types sca,apisec --threshold sca-high=1",
+                EngineSelection.applyToOptions("--scan-types \"sast,sca,apisec\" --threshold sca-high=1", engines));
+    }
+
+    @Test
+    public void testApplyToOptions_withNoConfiguredEngineRequired_ExpectNull() {
+        assertNull(EngineSelection.applyToOptions("--scan-types sast", Collections.singleton(EngineSelection.SCA)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.CheckmarxScanHistory;
+import com.checkmarx.jenkins.IncrementalScanPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IncrementalScanPolicyTest {
+
+    private static final String KEY = "test-project:main";
+
+    private CheckmarxScanHistory history;
+    private IncrementalScanPolicy policy;
+
+    @Before
+    public void before() {
+        history = new CheckmarxScanHistory(null, TimeUnit.DAYS.toMillis(30), 10);
+        policy = new IncrementalScanPolicy(3, 7, 2);
+    }
+
+    @Test
+    public void testFullScanReason_withoutBaseline_ExpectFullScan() {
+        assertNotNull(policy.fullScanReason(history, KEY, null, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testFullScanReason_withRecentBaseline_ExpectIncrementalUntilEveryBuilds() {
+        history.recordSastScan(KEY, "full-1", false);
+        assertNull(policy.fullScanReason(history, KEY, Collections.singletonList("Main.java"), System.currentTimeMillis()));
+
+        history.recordSastScan(KEY, "incremental-1", true);
+        assertNull(policy.fullScanReason(history, KEY, null, System.currentTimeMillis()));
+
+        history.recordSastScan(KEY, "incremental-2", true);
+        assertNotNull(policy.fullScanReason(history, KEY, null, System.currentTimeMillis()));
+
+        history.recordSastScan(KEY, "full-2", false);
+        assertEquals(0, history.getIncrementalSastScans(KEY));
+        assertNull(policy.fullScanReason(history, KEY, null, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testFullScanReason_withOldBaseline_ExpectFullScan() {
+        history.recordSastScan(KEY, "full-1", false);
+
+        assertNotNull(policy.fullScanReason(history, KEY, null, System.currentTimeMillis() + TimeUnit.DAYS.toMillis(7)));
+    }
+
+    @Test
+    public void testFullScanReason_withLargeChange_ExpectFullScan() {
+        history.recordSastScan(KEY, "full-1", false);
+
+        assertNotNull(policy.fullScanReason(history, KEY, Arrays.asList("A.java", "B.java"), System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testRemoveIncrementalFlag_withFlagInOptions_ExpectFlagRemoved() {
+        assertEquals("--scan-types sast --threshold sast-high=1",
+                IncrementalScanPolicy.removeIncrementalFlag("--scan-types sast --sast-incremental --threshold sast-high=1"));
+        assertEquals("--scan-types sast", IncrementalScanPolicy.removeIncrementalFlag("--scan-types sast --sast-incremental=true"));
+        assertEquals("--sast-incremental-x", IncrementalScanPolicy.removeIncrementalFlag("--sast-incremental-x"));
+    }
+}
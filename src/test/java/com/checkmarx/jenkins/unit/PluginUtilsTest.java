@@ -0,0 +1,82 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.PluginUtils;
+import com.checkmarx.jenkins.logger.CxLoggerAdapter;
+import com.checkmarx.jenkins.model.ScanConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class PluginUtilsTest {
+
+    private ScanConfig scanConfig;
+    private CxLoggerAdapter log;
+
+    @Before
+    public void before() {
+        scanConfig = new ScanConfig();
+        scanConfig.setServerUrl("http://example.com");
+        scanConfig.setTenantName("test-tenant");
+        log = new CxLoggerAdapter(System.out);
+    }
+
+    @Test
+    public void testAdditionalReportFormats_withSummariesAndConsole_ExpectFileFormatsOnly() {
+        List<String> formats = PluginUtils.additionalReportFormats("--report-format summaryHTML,sarif,summaryConsole,pdf,sarif --scan-types sast");
+
+        assertEquals(Arrays.asList("sarif", "pdf"), formats);
+    }
+
+    @Test
+    public void testAdditionalReportFormats_withoutReportFormat_ExpectEmpty() {
+        assertTrue(PluginUtils.additionalReportFormats("--scan-types sast").isEmpty());
+        assertTrue(PluginUtils.additionalReportFormats(null).isEmpty());
+    }
+
+    @Test
+    public void testGenerateReports_withAdditionalFormats_ExpectSingleMergedReportFormat() throws IOException {
+        List<String> formats = PluginUtils.mergeReportFormats(PluginUtils.additionalReportFormats("--report-format \"sarif,summaryJSON,pdf\""));
+
+        List<String> arguments = PluginUtils.generateReports(UUID.randomUUID(), scanConfig, "/opt/cx/cx", log, formats);
+
+        int formatIndex = arguments.indexOf(PluginUtils.REPORT_FORMAT);
+        assertTrue(formatIndex >= 0);
+        assertEquals(formatIndex, arguments.lastIndexOf(PluginUtils.REPORT_FORMAT));
+        assertEquals("summaryHTML,summaryJSON,sarif,pdf", arguments.get(formatIndex + 1));
+    }
+
+    @Test
+    public void testMergeReportFormats_withFormatCollidingWithSummary_ExpectLeftOut() {
+        assertEquals(PluginUtils.SUMMARY_REPORT_FORMATS, PluginUtils.mergeReportFormats(Collections.singletonList("json")));
+    }
+
+    @Test
+    public void testWithoutPerBuildOptions_withReportOptions_ExpectOnlyScanOptionsLeft() {
+        assertEquals("--scan-types sast --threshold \"sast-high=1\"", PluginUtils.withoutPerBuildOptions(
+                "--output-path \"/var/jenkins/workspace/app\" --scan-types sast --report-format=sarif,pdf --threshold \"sast-high=1\" --output-name app"));
+        assertEquals("", PluginUtils.withoutPerBuildOptions(null));
+    }
+
+    @Test
+    public void testReportExcludePatterns_withCustomNameAndPathInWorkspace_ExpectBothExcluded() {
+        scanConfig.setSourceDirectory("/var/jenkins/workspace/app");
+        scanConfig.setAdditionalOptions("--output-name app-report --report-format sarif --output-path \"/var/jenkins/workspace/app/cx-reports/\"");
+
+        assertEquals(Arrays.asList("**/app-report.*", "cx-reports/**"), PluginUtils.reportExcludePatterns(scanConfig));
+    }
+
+    @Test
+    public void testReportExcludePatterns_withReportsOutsideOfWorkspace_ExpectNothingExcluded() {
+        scanConfig.setSourceDirectory("/var/jenkins/workspace/app");
+        scanConfig.setAdditionalOptions("--output-path \"/var/jenkins/workspace/app-reports\"");
+
+        assertTrue(PluginUtils.reportExcludePatterns(scanConfig).isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.ScanSlots;
+import com.checkmarx.jenkins.ScanThrottle;
+import com.checkmarx.jenkins.model.ScanConfig;
+import hudson.EnvVars;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ScanSlotsTest {
+
+    @Test
+    public void testAcquire_withFreeSlot_ExpectNoWait() throws InterruptedException {
+        String key = "free";
+        try (ScanSlots.Slot first = ScanSlots.acquire(key, 2, ScanSlots.PRIORITY_PRIMARY);
+             ScanSlots.Slot second = ScanSlots.acquire(key, 2, ScanSlots.PRIORITY_PRIMARY)) {
+            assertEquals(2, ScanSlots.getRunning(key));
+            assertFalse(first.wasContended());
+            assertFalse(second.wasContended());
+        }
+        assertEquals(0, ScanSlots.getRunning(key));
+    }
+
+    @Test
+    public void testAcquire_withFullLimit_ExpectContendedSlot() throws Exception {
+        String key = "contended";
+        List<ScanSlots.Slot> acquired = new CopyOnWriteArrayList<>();
+        ScanSlots.Slot running = ScanSlots.acquire(key, 1, ScanSlots.PRIORITY_PRIMARY);
+        Thread waiting = new Thread(() -> {
+            try (ScanSlots.Slot slot = ScanSlots.acquire(key, 1, ScanSlots.PRIORITY_PRIMARY)) {
+                acquired.add(slot);
+            } catch (InterruptedException e) {
+                // not interrupted by this test
+            }
+        });
+        waiting.start();
+        awaitWaiting(key, 1);
+
+        running.close();
+        waiting.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse(running.wasContended());
+        assertEquals(1, acquired.size());
+        assertTrue(acquired.get(0).wasContended());
+        assertTrue(acquired.get(0).getWaitedMillis() >= 0);
+    }
+
+    @Test
+    public void testAcquire_withFullLimit_ExpectPrimaryBranchBeforeChangeRequest() throws Exception {
+        String key = "priority";
+        List<String> order = new CopyOnWriteArrayList<>();
+        ScanSlots.Slot running = ScanSlots.acquire(key, 1, ScanSlots.PRIORITY_PRIMARY);
+
+        Thread changeRequest = waitFor(key, ScanSlots.PRIORITY_CHANGE_REQUEST, "change request", order);
+        awaitWaiting(key, 1);
+        Thread primary = waitFor(key, ScanSlots.PRIORITY_PRIMARY, "primary", order);
+        awaitWaiting(key, 2);
+
+        running.close();
+        changeRequest.join(TimeUnit.SECONDS.toMillis(10));
+        primary.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals("primary", order.get(0));
+        assertEquals("change request", order.get(1));
+        assertEquals(0, ScanSlots.getRunning(key));
+    }
+
+    @Test
+    public void testAcquire_whenInterrupted_ExpectTicketRemoved() throws Exception {
+        String key = "interrupted";
+        try (ScanSlots.Slot running = ScanSlots.acquire(key, 1, ScanSlots.PRIORITY_PRIMARY)) {
+            Thread waiting = waitFor(key, ScanSlots.PRIORITY_PRIMARY, "waiting", new CopyOnWriteArrayList<>());
+            awaitWaiting(key, 1);
+            waiting.interrupt();
+            waiting.join(TimeUnit.SECONDS.toMillis(10));
+            assertEquals(0, ScanSlots.getWaiting(key));
+        }
+    }
+
+    @Test
+    public void testPriorityOf_withMultibranchVariables_ExpectChangeRequestsLast() {
+        EnvVars primary = new EnvVars("BRANCH_NAME", "main", "BRANCH_IS_PRIMARY", "true");
+        EnvVars branch = new EnvVars("BRANCH_NAME", "feature");
+        EnvVars changeRequest = new EnvVars("BRANCH_NAME", "PR-1", "CHANGE_ID", "1");
+
+        assertEquals(ScanSlots.PRIORITY_PRIMARY, ScanSlots.priorityOf(primary));
+        assertEquals(ScanSlots.PRIORITY_PRIMARY, ScanSlots.priorityOf(new EnvVars()));
+        assertEquals(ScanSlots.PRIORITY_BRANCH, ScanSlots.priorityOf(branch));
+        assertEquals(ScanSlots.PRIORITY_CHANGE_REQUEST, ScanSlots.priorityOf(changeRequest));
+    }
+
+    @Test
+    public void testPriorityOf_withNonPrimaryBranchOrChangeWithoutBranch_ExpectLowerPriority() {
+        EnvVars nonPrimary = new EnvVars("BRANCH_NAME", "main", "BRANCH_IS_PRIMARY", "false");
+        EnvVars changeWithoutBranch = new EnvVars("CHANGE_ID", "42");
+
+        assertEquals(ScanSlots.PRIORITY_BRANCH, ScanSlots.priorityOf(nonPrimary));
+        assertEquals(ScanSlots.PRIORITY_CHANGE_REQUEST, ScanSlots.priorityOf(changeWithoutBranch));
+    }
+
+    @Test
+    public void testThrottleMatches_withTenantlessLimit_ExpectAllTenantsOfServer() {
+        ScanThrottle throttle = new ScanThrottle("https://ast.example.com/", null, 3);
+        ScanConfig scanConfig = new ScanConfig();
+        scanConfig.setServerUrl("https://AST.example.com");
+        scanConfig.setTenantName("any-tenant");
+
+        assertTrue(throttle.matches(scanConfig));
+        assertFalse(new ScanThrottle("https://ast.example.com", "other-tenant", 3).matches(scanConfig));
+    }
+
+    private static Thread waitFor(String key, int priority, String name, List<String> order) {
+        Thread thread = new Thread(() -> {
+            try (ScanSlots.Slot slot = ScanSlots.acquire(key, 1, priority)) {
+                order.add(name);
+            } catch (InterruptedException e) {
+                // expected when the test interrupts the wait
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(String key, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (ScanSlots.getWaiting(key) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, ScanSlots.getWaiting(key));
+    }
+}
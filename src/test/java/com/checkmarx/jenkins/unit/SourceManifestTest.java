@@ -0,0 +1,133 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.SourceManifest;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SourceManifestTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testInvoke_withSameContent_ExpectSameDigest() throws Exception {
+        File first = createSources("first");
+        File second = createSources("second");
+
+        SourceManifest manifest = new SourceManifest.Builder().invoke(first, null);
+
+        assertEquals(2, manifest.getFileCount());
+        assertEquals(manifest.getDigest(), new SourceManifest.Builder().invoke(second, null).getDigest());
+    }
+
+    @Test
+    public void testInvoke_withChangedFile_ExpectOtherDigest() throws Exception {
+        File sources = createSources("sources");
+        String digest = new SourceManifest.Builder().invoke(sources, null).getDigest();
+
+        write(new File(sources, "src/Main.java"), "class Main { int changed; }");
+
+        assertNotEquals(digest, new SourceManifest.Builder().invoke(sources, null).getDigest());
+    }
+
+    @Test
+    public void testInvoke_withRenamedFile_ExpectOtherDigest() throws Exception {
+        File sources = createSources("sources");
+        String digest = new SourceManifest.Builder().invoke(sources, null).getDigest();
+
+        Files.move(new File(sources, "pom.xml").toPath(), new File(sources, "build.xml").toPath());
+
+        assertNotEquals(digest, new SourceManifest.Builder().invoke(sources, null).getDigest());
+    }
+
+    @Test
+    public void testInvoke_withVcsMetadataChange_ExpectSameDigest() throws Exception {
+        File sources = createSources("sources");
+        String digest = new SourceManifest.Builder().invoke(sources, null).getDigest();
+
+        write(new File(sources, ".git/FETCH_HEAD"), "abc123");
+
+        SourceManifest manifest = new SourceManifest.Builder().invoke(sources, null);
+        assertEquals(digest, manifest.getDigest());
+        assertEquals(2, manifest.getFileCount());
+    }
+
+    @Test
+    public void testInvoke_withReportsOfEarlierBuilds_ExpectSameDigest() throws Exception {
+        File sources = createSources("sources");
+        String digest = new SourceManifest.Builder().invoke(sources, null).getDigest();
+
+        write(new File(sources, "cx_result.json"), "{}");
+        write(new File(sources, "reports/checkmarx-ast-results.html"), "<html/>");
+        write(new File(sources, "cx1234567890/checkmarx-sources.zip"), "zip");
+
+        SourceManifest manifest = new SourceManifest.Builder().invoke(sources, null);
+        assertEquals(digest, manifest.getDigest());
+        assertEquals(2, manifest.getFileCount());
+    }
+
+    @Test
+    public void testInvoke_withCustomReportNames_ExpectSameDigest() throws Exception {
+        File sources = createSources("sources");
+        SourceManifest.Builder builder = new SourceManifest.Builder(Arrays.asList("**/app-report.*", "cx-reports/**"));
+        String digest = builder.invoke(sources, null).getDigest();
+
+        write(new File(sources, "app-report.sarif"), "{}");
+        write(new File(sources, "cx-reports/results.pdf"), "pdf");
+
+        assertEquals(digest, builder.invoke(sources, null).getDigest());
+        assertNotEquals(digest, new SourceManifest.Builder().invoke(sources, null).getDigest());
+    }
+
+    @Test
+    public void testInvoke_withSnapshotPatterns_ExpectOnlySnapshotFilesDigested() throws Exception {
+        File sources = createSources("sources");
+        Assume.assumeTrue("git is not available", git(sources, "init", "-q") == 0);
+        write(new File(sources, "target/Main.class"), "binary");
+        assertEquals(0, git(sources, "add", "pom.xml", "src/Main.java", "target/Main.class"));
+        SourceManifest.Builder builder = new SourceManifest.Builder(Collections.emptyList(), Collections.singletonList("**/target/**"));
+        String digest = builder.invoke(sources, null).getDigest();
+
+        write(new File(sources, "target/Main.class"), "rebuilt");
+        write(new File(sources, "untracked.txt"), "not added");
+
+        SourceManifest manifest = builder.invoke(sources, null);
+        assertEquals(digest, manifest.getDigest());
+        assertEquals(2, manifest.getFileCount());
+    }
+
+    private File createSources(String name) throws IOException {
+        File sources = tempFolder.newFolder(name);
+        write(new File(sources, "pom.xml"), "<project/>");
+        write(new File(sources, "src/Main.java"), "class Main {}");
+        return sources;
+    }
+
+    private static int git(File directory, String... arguments) throws InterruptedException {
+        String[] command = new String[arguments.length + 1];
+        command[0] = "git";
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+        try {
+            return new ProcessBuilder(command).directory(directory).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start().waitFor();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package com.checkmarx.jenkins.unit;
+
+import com.checkmarx.jenkins.SourceManifest;
+import com.checkmarx.jenkins.SourceSnapshot;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SourceSnapshotTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testParsePatterns_withCommasAndNewLines_ExpectTrimmedPatterns() {
+        assertEquals(Arrays.asList("src/**", "pom.xml", "docs/**"), SourceSnapshot.parsePatterns(" src/**, pom.xml\n\ndocs/** "));
+        assertTrue(SourceSnapshot.parsePatterns(null).isEmpty());
+    }
+
+    @Test
+    public void testIsIncluded_withPreset_ExpectBuildOutputsExcluded() {
+        List<String> excludes = SourceSnapshot.Preset.NO_BUILD_OUTPUTS.getExcludes();
+        List<String> none = Collections.emptyList();
+
+        assertTrue(SourceSnapshot.isIncluded("src/main/java/Main.java", none, excludes));
+        assertFalse(SourceSnapshot.isIncluded("web/node_modules/lib/index.js", none, excludes));
+        assertFalse(SourceSnapshot.isIncluded("target/classes/Main.class", none, excludes));
+        assertFalse(SourceSnapshot.isIncluded("src/main/java/Main.java", Collections.singletonList("web/**"), excludes));
+    }
+
+    @Test
+    public void testCreator_withGitWorkingCopy_ExpectOnlyTrackedFilesArchived() throws Exception {
+        File workingCopy = tempFolder.newFolder("repo");
+        Assume.assumeTrue("git is not available", git(workingCopy, "init", "-q") == 0);
+        write(new File(workingCopy, "src/Main.java"), "class Main {}");
+        write(new File(workingCopy, "build/Main.class"), "binary");
+        write(new File(workingCopy, "untracked.txt"), "not added");
+        assertEquals(0, git(workingCopy, "add", "src/Main.java", "build/Main.class"));
+        File archiveDirectory = tempFolder.newFolder("archive");
+
+        SourceSnapshot snapshot = new SourceSnapshot.Creator(archiveDirectory.getAbsolutePath(), Collections.emptyList(),
+                SourceSnapshot.Preset.NO_BUILD_OUTPUTS.getExcludes()).invoke(workingCopy, null);
+
+        assertEquals(1, snapshot.getFileCount());
+        try (ZipFile zip = new ZipFile(new File(snapshot.getArchive()))) {
+            assertNotNull(zip.getEntry("src/Main.java"));
+            assertNull(zip.getEntry("build/Main.class"));
+            assertNull(zip.getEntry("untracked.txt"));
+        }
+    }
+
+    @Test
+    public void testCreator_withTrackedSymlinks_ExpectLinksLeftOut() throws Exception {
+        File workingCopy = tempFolder.newFolder("repo");
+        Assume.assumeTrue("git is not available", git(workingCopy, "init", "-q") == 0);
+        File outside = tempFolder.newFolder("outside");
+        write(new File(outside, "secret.txt"), "outside the working copy");
+        write(new File(workingCopy, "src/Main.java"), "class Main {}");
+        write(new File(workingCopy, "linked/Other.java"), "class Other {}");
+        try {
+            Files.createSymbolicLink(new File(workingCopy, "secret.txt").toPath(), new File(outside, "secret.txt").toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            Assume.assumeNoException("symlinks are not supported", e);
+        }
+        assertEquals(0, git(workingCopy, "add", "src/Main.java", "linked/Other.java", "secret.txt"));
+        // the tracked directory is replaced by a link after the checkout
+        write(new File(outside, "Other.java"), "class Other {}");
+        Files.delete(new File(workingCopy, "linked/Other.java").toPath());
+        Files.delete(new File(workingCopy, "linked").toPath());
+        Files.createSymbolicLink(new File(workingCopy, "linked").toPath(), outside.toPath());
+        File archiveDirectory = tempFolder.newFolder("archive");
+
+        SourceSnapshot snapshot = new SourceSnapshot.Creator(archiveDirectory.getAbsolutePath(), Collections.emptyList(),
+                Collections.emptyList()).invoke(workingCopy, null);
+
+        assertEquals(1, snapshot.getFileCount());
+        try (ZipFile zip = new ZipFile(new File(snapshot.getArchive()))) {
+            assertNotNull(zip.getEntry("src/Main.java"));
+            assertNull(zip.getEntry("secret.txt"));
+            assertNull(zip.getEntry("linked/Other.java"));
+        }
+        assertEquals(1, new SourceManifest.Builder(Collections.emptyList(), Collections.emptyList()).invoke(workingCopy, null).getFileCount());
+        assertEquals(1, new SourceManifest.Builder().invoke(workingCopy, null).getFileCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testCreator_withoutGitWorkingCopy_ExpectIOException() throws Exception {
+        File directory = tempFolder.newFolder("plain");
+        Assume.assumeTrue("git is not available", git(tempFolder.newFolder("probe"), "--version") == 0);
+        Assume.assumeTrue("the temporary folder is inside a git working copy", git(directory, "rev-parse") != 0);
+
+        new SourceSnapshot.Creator(directory.getAbsolutePath(), Collections.emptyList(), Collections.emptyList()).invoke(directory, null);
+    }
+
+    private static int git(File directory, String... arguments) throws InterruptedException {
+        String[] command = new String[arguments.length + 1];
+        command[0] = "git";
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+        try {
+            return new ProcessBuilder(command).directory(directory).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start().waitFor();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
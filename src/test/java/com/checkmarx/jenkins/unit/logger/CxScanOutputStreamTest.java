@@ -0,0 +1,88 @@
+package com.checkmarx.jenkins.unit.logger;
+
+import com.checkmarx.jenkins.logger.CxScanOutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class CxScanOutputStreamTest {
+
+    private static final String SCAN_ID = "0c8e3f2a-1b2c-4d5e-8f90-a1b2c3d4e5f6";
+
+    @Test
+    public void testWrite_withScanIdLine_ExpectScanIdDetected() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        CxScanOutputStream stream = new CxScanOutputStream(log);
+
+        write(stream, "Scan created\n{\"ID\":\"" + SCAN_ID + "\",\"Status\":\"Queued\"}\nWaiting");
+
+        assertEquals(SCAN_ID, stream.getScanId());
+        stream.close();
+        assertTrue(log.toString(StandardCharsets.UTF_8.name()).endsWith("Waiting"));
+    }
+
+    @Test
+    public void testWrite_withScanIdAcrossLongLineChunks_ExpectScanIdDetected() throws IOException {
+        CxScanOutputStream stream = new CxScanOutputStream(new ByteArrayOutputStream());
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 64 * 1024 - 20; i++) {
+            padding.append('x');
+        }
+
+        write(stream, padding + "{\"ID\":\"" + SCAN_ID + "\",\"Status\":\"Queued\"}\n");
+
+        assertEquals(SCAN_ID, stream.getScanId());
+        stream.close();
+    }
+
+    @Test
+    public void testWrite_withoutScanId_ExpectEmptyScanId() throws IOException {
+        CxScanOutputStream stream = new CxScanOutputStream(new ByteArrayOutputStream());
+
+        write(stream, "Nothing to see here\n");
+        stream.close();
+
+        assertEquals("", stream.getScanId());
+        assertFalse(stream.isPolicyViolated());
+    }
+
+    @Test
+    public void testWrite_withPolicyViolationAndBreakBuild_ExpectPolicyViolated() throws IOException {
+        CxScanOutputStream stream = new CxScanOutputStream(new ByteArrayOutputStream());
+
+        write(stream, "Policy Management Violation - Policy: test\nBreak Build: true");
+        stream.close();
+
+        assertTrue(stream.isPolicyViolated());
+    }
+
+    @Test
+    public void testWrite_withPolicyViolationWithoutBreakBuild_ExpectNotViolated() throws IOException {
+        CxScanOutputStream stream = new CxScanOutputStream(new ByteArrayOutputStream());
+
+        write(stream, "Policy Management Violation - Policy: test\nBreak Build: false\n");
+        stream.close();
+
+        assertFalse(stream.isPolicyViolated());
+    }
+
+    @Test
+    public void testWrite_withRawLog_ExpectRawLogCopied() throws IOException {
+        ByteArrayOutputStream rawLog = new ByteArrayOutputStream();
+        CxScanOutputStream stream = new CxScanOutputStream(new ByteArrayOutputStream(), rawLog);
+
+        write(stream, "line one\nline two\n");
+        stream.close();
+
+        assertEquals("line one\nline two\n", rawLog.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    private static void write(CxScanOutputStream stream, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        stream.write(bytes, 0, bytes.length);
+    }
+}
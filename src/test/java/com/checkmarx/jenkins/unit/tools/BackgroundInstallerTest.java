@@ -0,0 +1,122 @@
+package com.checkmarx.jenkins.unit.tools;
+
+import com.checkmarx.jenkins.tools.BackgroundInstaller;
+import com.checkmarx.jenkins.tools.CheckmarxInstaller;
+import hudson.model.Node;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BackgroundInstallerTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testSubmit_withInstallPending_ExpectNotQueuedTwice() throws Exception {
+        String key = "agent-1|cx-" + UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        assertTrue(BackgroundInstaller.submit(key, "test CLI", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } finally {
+                done.countDown();
+            }
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertFalse(BackgroundInstaller.submit(key, "test CLI", () -> fail("Queued twice")));
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertTrue(awaitSubmitted(key, () -> {
+        }));
+    }
+
+    @Test
+    public void testSubmit_withFailingInstall_ExpectKeyReleased() throws Exception {
+        String key = "agent-1|cx-" + UUID.randomUUID();
+        CountDownLatch failed = new CountDownLatch(1);
+
+        assertTrue(BackgroundInstaller.submit(key, "test CLI", () -> {
+            failed.countDown();
+            throw new IOException("download failed");
+        }));
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+
+        assertTrue(awaitSubmitted(key, () -> {
+        }));
+    }
+
+    @Test
+    public void testSubmit_withMoreInstallsThanThreads_ExpectConcurrencyBounded() throws Exception {
+        int installs = BackgroundInstaller.CONCURRENCY + 2;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(installs);
+        for (int i = 0; i < installs; i++) {
+            assertTrue(BackgroundInstaller.submit("agent-" + i + "|cx-" + UUID.randomUUID(), "test CLI", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            }));
+        }
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (running.get() < BackgroundInstaller.CONCURRENCY && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertEquals(BackgroundInstaller.CONCURRENCY, maxRunning.get());
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(BackgroundInstaller.CONCURRENCY, maxRunning.get());
+    }
+
+    @Test
+    public void testIsPrewarmedOn_withLabelExpression_ExpectOnlyMatchingAgents() throws Exception {
+        Node linuxDocker = j.createSlave("linux-docker", "linux docker", null);
+        Node linux = j.createSlave("linux", "linux", null);
+        CheckmarxInstaller installer = new CheckmarxInstaller(null, "latest", 24L);
+        installer.setPrewarmLabel("linux && docker");
+
+        assertFalse("pre-warming is disabled", installer.isPrewarmedOn(linuxDocker));
+
+        installer.setPrewarmOnConnect(true);
+        assertTrue(installer.isPrewarmedOn(linuxDocker));
+        assertFalse(installer.isPrewarmedOn(linux));
+
+        installer.setPrewarmLabel(" ");
+        assertTrue(installer.isPrewarmedOn(linux));
+    }
+
+    /**
+     * Submits once the previous install with the key has released it, which happens right after it ran.
+     */
+    private static boolean awaitSubmitted(String key, BackgroundInstaller.Install install) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (System.currentTimeMillis() < deadline) {
+            if (BackgroundInstaller.submit(key, "test CLI", install)) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
@@ -160,6 +160,29 @@ public class CheckmarxInstallerTest {
         assertTrue(new File(expectedPath.child(".installedFrom").getRemote()).exists());
     }
 
+    @Test
+    public void testInstallationFromLocalMirror_ExpectNoGitHubLookup() throws IOException, InterruptedException {
+        File mirror = tempFolder.newFolder("mirror");
+        String fileName = "ast-cli_v1.0.0_" + Platform.LINUX.packageExtension;
+        new FilePath(mirror).child("index.json").write("{\"versions\":{\"v1.0.0\":{\"" + fileName + "\":\"abc123\"}}}", "UTF-8");
+        new FilePath(mirror).child("v1.0.0").child(fileName).write("archive", "UTF-8");
+        installer.setMirrorUrl(mirror.getAbsolutePath());
+
+        when(toolInstallation.getHome()).thenReturn(expectedPath.getRemote());
+        when(node.getRootPath()).thenReturn(expectedPath);
+        doReturn(Platform.LINUX).when(virtualChannel).call(any());
+        pluginUtils.when(PluginUtils::getProxy).thenReturn("");
+        downloadService.when(() -> DownloadService.buildFileName(any(), any())).thenCallRealMethod();
+
+        installer.performInstallation(toolInstallation, node, taskListener);
+
+        FilePath entry = expectedPath.child("tools").child("checkmarx-cli-store").child("v1.0.0_linux");
+        assertEquals("archive", entry.child(fileName).readToString());
+        assertTrue(expectedPath.child(".installedFrom").readToString().startsWith("file:"));
+        downloadService.verify(() -> DownloadService.getDownloadUrlForCli(any(), any()), never());
+        downloadService.verify(() -> DownloadService.getChecksum(any(), any()), never());
+    }
+
     @Test(expected = RuntimeException.class)
     public void testInstallationFailure() throws IOException, InterruptedException {
         when(toolInstallation.getHome()).thenReturn(expectedPath.getRemote());
@@ -0,0 +1,119 @@
+package com.checkmarx.jenkins.unit.tools;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import com.checkmarx.jenkins.logger.CxLoggerAdapter;
+import com.checkmarx.jenkins.tools.InstallLock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InstallLockTest {
+
+    private static final String NODE = "agent-1";
+
+    private CxLoggerAdapter log;
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        log = new CxLoggerAdapter(System.out);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAcquire_withLockHeldByOtherThread_ExpectTimeout() throws Exception {
+        String location = "/opt/tools/timeout";
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> {
+            try (InstallLock.Lease lease = InstallLock.acquire(NODE, location, log)) {
+                acquired.countDown();
+                release.await();
+            }
+            return null;
+        });
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+
+        try {
+            InstallLock.acquire(NODE, location, log, 100, TimeUnit.MILLISECONDS).close();
+            fail("Expected the lock to time out");
+        } catch (ToolDetectionException e) {
+            assertTrue(e.getMessage().contains(location));
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        }
+
+        InstallLock.acquire(NODE, location, log, 100, TimeUnit.MILLISECONDS).close();
+    }
+
+    @Test
+    public void testAcquire_withLockHeldBySameThread_ExpectReentrant() throws Exception {
+        String location = "/opt/tools/reentrant";
+        try (InstallLock.Lease lease = InstallLock.acquire(NODE, location, log)) {
+            InstallLock.acquire(NODE, location, log, 100, TimeUnit.MILLISECONDS).close();
+
+            Future<Boolean> other = executor.submit(() -> {
+                try {
+                    InstallLock.acquire(NODE, location, log, 100, TimeUnit.MILLISECONDS).close();
+                    return true;
+                } catch (ToolDetectionException e) {
+                    return false;
+                }
+            });
+            assertFalse("the outer lease still holds the lock", other.get(10, TimeUnit.SECONDS));
+        }
+
+        Future<?> other = executor.submit(() -> {
+            InstallLock.acquire(NODE, location, log, 100, TimeUnit.MILLISECONDS).close();
+            return null;
+        });
+        other.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAcquire_withOtherLocationOrNode_ExpectNoWait() throws Exception {
+        String location = "/opt/tools/independent";
+        try (InstallLock.Lease lease = InstallLock.acquire(NODE, location, log)) {
+            Future<?> other = executor.submit(() -> {
+                InstallLock.acquire(NODE, location + "-other", log, 100, TimeUnit.MILLISECONDS).close();
+                InstallLock.acquire("agent-2", location, log, 100, TimeUnit.MILLISECONDS).close();
+                return null;
+            });
+            other.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testClose_withLastLeaseAndWaiterGone_ExpectLockDropped() throws Exception {
+        String location = "/opt/tools/dropped";
+        try (InstallLock.Lease lease = InstallLock.acquire(NODE, location, log)) {
+            Future<Boolean> waiter = executor.submit(() -> {
+                try {
+                    InstallLock.acquire(NODE, location, log, 100, TimeUnit.MILLISECONDS).close();
+                    return true;
+                } catch (ToolDetectionException e) {
+                    return false;
+                }
+            });
+            assertFalse(waiter.get(10, TimeUnit.SECONDS));
+            InstallLock.acquire(NODE, location, log).close();
+            assertTrue("the outer lease still holds the lock", InstallLock.isInUse(NODE, location));
+        }
+
+        assertFalse(InstallLock.isInUse(NODE, location));
+    }
+}
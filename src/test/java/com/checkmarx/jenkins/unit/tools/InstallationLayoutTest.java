@@ -0,0 +1,225 @@
+package com.checkmarx.jenkins.unit.tools;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import com.checkmarx.jenkins.tools.InstallationLayout;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InstallationLayoutTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File home;
+
+    @Before
+    public void setUp() throws IOException {
+        home = tempFolder.newFolder("home");
+    }
+
+    @Test
+    public void testResolveActive_withoutPointer_ExpectHome() throws IOException {
+        assertEquals(home, InstallationLayout.resolveActive(home));
+    }
+
+    @Test
+    public void testStageAndActivate_withValidArchive_ExpectActiveContentDirectory() throws IOException {
+        File archive = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "v1");
+
+        String directoryName = InstallationLayout.stage(archive, InstallationLayout.sha256(archive), "cx", home);
+        InstallationLayout.activate(home, directoryName);
+
+        File active = InstallationLayout.resolveActive(home);
+        assertEquals(InstallationLayout.contentDirectoryName(InstallationLayout.sha256(archive)), active.getName());
+        assertEquals("v1", new String(Files.readAllBytes(new File(active, "cx").toPath()), StandardCharsets.UTF_8));
+        assertTrue(InstallationLayout.isComplete(home, InstallationLayout.sha256(archive)));
+    }
+
+    @Test(expected = ToolDetectionException.class)
+    public void testStage_withChecksumMismatch_ExpectException() throws IOException {
+        File archive = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "v1");
+
+        InstallationLayout.stage(archive, "0000", "cx", home);
+    }
+
+    @Test
+    public void testStageFromStream_withValidArchive_ExpectSameDirectoryAsFile() throws IOException {
+        File archive = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "v1");
+        String sha256 = InstallationLayout.sha256(archive);
+
+        String directoryName;
+        try (InputStream stream = Files.newInputStream(archive.toPath())) {
+            directoryName = InstallationLayout.stage(stream, archive.getName(), sha256, "cx", home);
+        }
+
+        assertEquals(InstallationLayout.contentDirectoryName(sha256), directoryName);
+        assertTrue(InstallationLayout.isComplete(home, sha256));
+        assertEquals("v1", new String(Files.readAllBytes(new File(new File(home, directoryName), "cx").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStageFromStream_withChecksumMismatch_ExpectNothingStaged() throws IOException {
+        File archive = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "v1");
+
+        try (InputStream stream = Files.newInputStream(archive.toPath())) {
+            InstallationLayout.stage(stream, archive.getName(), "0000", "cx", home);
+            fail("Expected a checksum mismatch");
+        } catch (ToolDetectionException e) {
+            assertArrayEquals(new String[0], home.list());
+        }
+    }
+
+    @Test
+    public void testStage_withEntryOutsideOfTarget_ExpectException() throws IOException {
+        File archive = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "../../escaped", "v1");
+
+        try {
+            InstallationLayout.stage(archive, null, "cx", home);
+            fail("Expected the entry to be rejected");
+        } catch (ToolDetectionException e) {
+            assertFalse(new File(tempFolder.getRoot(), "escaped").exists());
+            assertArrayEquals(new String[0], home.list());
+        }
+    }
+
+    @Test
+    public void testActivate_withNewVersion_ExpectSwitchAndPreviousKept() throws IOException {
+        File first = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "v1");
+        File second = createArchive("ast-cli_2.0.0_linux_x64.tar.gz", "v2");
+        File third = createArchive("ast-cli_3.0.0_linux_x64.tar.gz", "v3");
+
+        String firstDirectory = InstallationLayout.stage(first, null, "cx", home);
+        InstallationLayout.activate(home, firstDirectory);
+        String secondDirectory = InstallationLayout.stage(second, null, "cx", home);
+        InstallationLayout.activate(home, secondDirectory);
+        String thirdDirectory = InstallationLayout.stage(third, null, "cx", home);
+        InstallationLayout.activate(home, thirdDirectory);
+
+        assertEquals(thirdDirectory, InstallationLayout.resolveActive(home).getName());
+        assertTrue(new File(home, secondDirectory).isDirectory());
+        assertFalse(new File(home, firstDirectory).exists());
+    }
+
+    @Test
+    public void testActivate_withAbsoluteStoreDirectory_ExpectResolvedAndMarkedUsed() throws IOException {
+        File entry = tempFolder.newFolder("store", "1.0.0_linux");
+        File archive = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "v1");
+        String directoryName = InstallationLayout.stage(archive, null, "cx", entry);
+
+        InstallationLayout.activate(home, new File(entry, directoryName).getAbsolutePath());
+
+        assertEquals(new File(entry, directoryName), InstallationLayout.resolveActive(home));
+        assertTrue(InstallationLayout.markUsed(home));
+        assertTrue(new File(entry, ".lastUsed").isFile());
+    }
+
+    @Test
+    public void testIsActive_withStoreDirectory_ExpectUseNotRecorded() throws IOException {
+        File entry = tempFolder.newFolder("store", "1.0.0_linux");
+        File archive = createArchive("ast-cli_1.0.0_linux_x64.tar.gz", "v1");
+        String directoryName = InstallationLayout.stage(archive, null, "cx", entry);
+        InstallationLayout.activate(home, new File(entry, directoryName).getAbsolutePath());
+
+        assertTrue(InstallationLayout.isActive(home));
+        assertFalse(new File(entry, ".lastUsed").exists());
+
+        FileUtils.deleteDirectory(new File(entry, directoryName));
+        assertFalse(InstallationLayout.isActive(home));
+    }
+
+    @Test
+    public void testEvict_withBudgetExceeded_ExpectLeastRecentlyUsedRemoved() throws IOException {
+        File store = tempFolder.newFolder("store");
+        File oldest = createEntry(store, "1.0.0_linux", 3);
+        File older = createEntry(store, "2.0.0_linux", 2);
+        File newest = createEntry(store, "3.0.0_linux", 1);
+
+        InstallationLayout.evict(store, 20, Long.MAX_VALUE, newest);
+
+        assertFalse(oldest.exists());
+        assertTrue(older.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void testEvict_withExpiredEntry_ExpectRemovedEvenWithinBudget() throws IOException {
+        File store = tempFolder.newFolder("store");
+        File expired = createEntry(store, "1.0.0_linux", 40);
+        File recent = createEntry(store, "2.0.0_linux", 1);
+
+        InstallationLayout.evict(store, Long.MAX_VALUE, TimeUnit.DAYS.toMillis(30), recent);
+
+        assertFalse(expired.exists());
+        assertTrue(recent.exists());
+    }
+
+    @Test
+    public void testEvict_withRecentlyUsedEntry_ExpectKeptOverBudget() throws IOException {
+        File store = tempFolder.newFolder("store");
+        File inUse = createEntry(store, "1.0.0_linux", 0);
+        File newest = createEntry(store, "2.0.0_linux", 0);
+
+        InstallationLayout.evict(store, 0, Long.MAX_VALUE, newest);
+
+        assertTrue(inUse.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void testEvict_withEntryReferencedByInstallation_ExpectKeptEvenExpired() throws IOException {
+        File store = tempFolder.newFolder("store");
+        File referenced = createEntry(store, "1.0.0_linux", 40);
+        File content = new File(referenced, "sha256-abc");
+        assertTrue(content.mkdir());
+        InstallationLayout.activate(home, content.getAbsolutePath());
+        File recent = createEntry(store, "2.0.0_linux", 1);
+
+        InstallationLayout.evict(store, Long.MAX_VALUE, TimeUnit.DAYS.toMillis(30), recent);
+
+        assertTrue(referenced.exists());
+    }
+
+    private File createEntry(File store, String name, int daysSinceLastUse) throws IOException {
+        File entry = new File(store, name);
+        Files.createDirectories(entry.toPath());
+        Files.write(new File(entry, "cx").toPath(), "0123456789".getBytes(StandardCharsets.UTF_8));
+        File lastUsed = new File(entry, ".lastUsed");
+        assertTrue(lastUsed.createNewFile());
+        assertTrue(lastUsed.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(daysSinceLastUse)));
+        return entry;
+    }
+
+    private File createArchive(String name, String content) throws IOException {
+        return createArchive(name, "cx", content);
+    }
+
+    private File createArchive(String name, String entryName, String content) throws IOException {
+        File archive = tempFolder.newFile(name);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try (OutputStream file = Files.newOutputStream(archive.toPath());
+             TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(file))) {
+            TarArchiveEntry entry = new TarArchiveEntry(entryName);
+            entry.setSize(bytes.length);
+            tar.putArchiveEntry(entry);
+            tar.write(bytes);
+            tar.closeArchiveEntry();
+        }
+        return archive;
+    }
+}
@@ -0,0 +1,93 @@
+package com.checkmarx.jenkins.unit.tools;
+
+import com.checkmarx.jenkins.tools.NodeToolCache;
+import com.checkmarx.jenkins.tools.Platform;
+import hudson.model.Computer;
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.OfflineCause;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class NodeToolCacheTest {
+
+    private static final String HOME = "/opt/tools/cx";
+
+    @Mock
+    private VirtualChannel channel;
+
+    @Mock
+    private Computer computer;
+
+    @Mock
+    private Callable<Platform, IOException> platformLookup;
+
+    @Mock
+    private Callable<String, IOException> executableLookup;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(channel.call(platformLookup)).thenReturn(Platform.LINUX);
+        when(channel.call(executableLookup)).thenReturn(HOME + "/cx");
+        when(computer.getChannel()).thenReturn(channel);
+    }
+
+    @Test
+    public void testGetPlatform_withCachedPlatform_ExpectSingleLookup() throws Exception {
+        assertEquals(Platform.LINUX, NodeToolCache.getPlatform(channel, platformLookup));
+        assertEquals(Platform.LINUX, NodeToolCache.getPlatform(channel, platformLookup));
+
+        verify(channel, times(1)).call(platformLookup);
+    }
+
+    @Test
+    public void testGetPlatform_withNodeOffline_ExpectLookedUpAgain() throws Exception {
+        NodeToolCache.getPlatform(channel, platformLookup);
+
+        new NodeToolCache.Invalidator().onOffline(computer, mock(OfflineCause.class));
+        NodeToolCache.getPlatform(channel, platformLookup);
+
+        verify(channel, times(2)).call(platformLookup);
+    }
+
+    @Test
+    public void testGetExecutable_withNodeOnline_ExpectLookedUpAgain() throws Exception {
+        NodeToolCache.getExecutable(channel, HOME, executableLookup);
+
+        new NodeToolCache.Invalidator().onOnline(computer, null);
+        assertEquals(HOME + "/cx", NodeToolCache.getExecutable(channel, HOME, executableLookup));
+
+        verify(channel, times(2)).call(executableLookup);
+    }
+
+    @Test
+    public void testInvalidateExecutables_withCachedPlatform_ExpectOnlyExecutablesLookedUpAgain() throws Exception {
+        NodeToolCache.getPlatform(channel, platformLookup);
+        NodeToolCache.getExecutable(channel, HOME, executableLookup);
+
+        NodeToolCache.invalidateExecutables();
+        NodeToolCache.getPlatform(channel, platformLookup);
+        NodeToolCache.getExecutable(channel, HOME, executableLookup);
+
+        verify(channel, times(1)).call(platformLookup);
+        verify(channel, times(2)).call(executableLookup);
+    }
+
+    @Test
+    public void testGetExecutable_withNullExecutable_ExpectNotCached() throws Exception {
+        when(channel.call(executableLookup)).thenReturn(null);
+
+        assertNull(NodeToolCache.getExecutable(channel, HOME, executableLookup));
+        assertNull(NodeToolCache.getExecutable(channel, HOME, executableLookup));
+
+        verify(channel, times(2)).call(executableLookup);
+    }
+}
@@ -0,0 +1,72 @@
+package com.checkmarx.jenkins.unit.tools;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import com.checkmarx.jenkins.tools.Platform;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PlatformTest {
+
+    @Test
+    public void testDetect_withLinuxAmd64_ExpectLinux() throws ToolDetectionException {
+        assertEquals(Platform.LINUX, Platform.detect(properties("Linux", "amd64")));
+    }
+
+    @Test
+    public void testDetect_withLinuxAarch64_ExpectLinuxArm64() throws ToolDetectionException {
+        assertEquals(Platform.LINUX_ARM64, Platform.detect(properties("Linux", "aarch64")));
+    }
+
+    @Test
+    public void testDetect_withAppleSilicon_ExpectMacOsArm64() throws ToolDetectionException {
+        assertEquals(Platform.MAC_OS_ARM64, Platform.detect(properties("Mac OS X", "aarch64")));
+    }
+
+    @Test
+    public void testDetect_withWindowsAmd64_ExpectWindows() throws ToolDetectionException {
+        assertEquals(Platform.WINDOWS, Platform.detect(properties("Windows 11", "amd64")));
+    }
+
+    @Test
+    public void testDetect_with32BitJvmOnWindows_ExpectWindowsX64() throws ToolDetectionException {
+        assertEquals(Platform.WINDOWS, Platform.detect(properties("Windows 10", "x86")));
+    }
+
+    @Test
+    public void testDetect_with32BitJvmOnLinux_ExpectLinuxX64() throws ToolDetectionException {
+        assertEquals(Platform.LINUX, Platform.detect(properties("Linux", "i386")));
+    }
+
+    @Test
+    public void testDetect_withUnsupportedOs_ExpectOsInMessage() {
+        try {
+            Platform.detect(properties("FreeBSD", "amd64"));
+            fail("Expected the operating system to be rejected");
+        } catch (ToolDetectionException e) {
+            assertTrue(e.getMessage().contains("freebsd"));
+        }
+    }
+
+    @Test(expected = ToolDetectionException.class)
+    public void testDetect_withWindowsArm64_ExpectException() throws ToolDetectionException {
+        Platform.detect(properties("Windows 11", "aarch64"));
+    }
+
+    @Test(expected = ToolDetectionException.class)
+    public void testDetect_withLinuxPpc64le_ExpectException() throws ToolDetectionException {
+        Platform.detect(properties("Linux", "ppc64le"));
+    }
+
+    private static Map<Object, Object> properties(String osName, String osArch) {
+        Map<Object, Object> properties = new HashMap<>();
+        properties.put("os.name", osName);
+        properties.put("os.arch", osArch);
+        return properties;
+    }
+}
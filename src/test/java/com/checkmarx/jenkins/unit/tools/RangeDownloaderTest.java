@@ -0,0 +1,97 @@
+package com.checkmarx.jenkins.unit.tools;
+
+import com.checkmarx.jenkins.tools.RangeDownloader;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RangeDownloaderTest {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("HEAD".equals(request.getMethod())) {
+                    return new MockResponse()
+                            .setHeader("Content-Length", CONTENT.length())
+                            .setHeader("Accept-Ranges", "bytes");
+                }
+                String range = request.getHeader("Range");
+                ranges.add(range);
+                if (downloads.getAndIncrement() == 0) {
+                    return new MockResponse().setBody(CONTENT).setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+                }
+                int first = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+                return new MockResponse().setResponseCode(206).setBody(CONTENT.substring(first));
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testDownload_withFailureMidway_ExpectResumedFromPartialFile() throws Exception {
+        File destination = new File(tempFolder.getRoot(), "cli.tar.gz");
+
+        new RangeDownloader(new OkHttpClient(), server.url("/cli.tar.gz").url(), 1, 1).download(destination);
+
+        assertEquals(CONTENT, new String(Files.readAllBytes(destination.toPath()), StandardCharsets.UTF_8));
+        assertEquals(2, ranges.size());
+        assertNotEquals("bytes=0-" + (CONTENT.length() - 1), ranges.get(1));
+    }
+
+    @Test
+    public void testOpen_withFailureMidway_ExpectBytesReadKeptForResume() throws Exception {
+        File partial = new File(tempFolder.getRoot(), "cli.tar.gz.part");
+        RangeDownloader downloader = new RangeDownloader(new OkHttpClient(), server.url("/cli.tar.gz").url(), 1, 1);
+
+        try (InputStream in = downloader.open(partial)) {
+            IOUtils.toByteArray(in);
+            fail("Expected the transfer to fail midway");
+        } catch (IOException e) {
+            assertTrue(CONTENT.startsWith(new String(Files.readAllBytes(partial.toPath()), StandardCharsets.UTF_8)));
+        }
+
+        downloader.download(partial);
+
+        assertEquals(CONTENT, new String(Files.readAllBytes(partial.toPath()), StandardCharsets.UTF_8));
+        assertEquals(2, ranges.size());
+        assertNull(ranges.get(0));
+        assertNotEquals("bytes=0-" + (CONTENT.length() - 1), ranges.get(1));
+    }
+}
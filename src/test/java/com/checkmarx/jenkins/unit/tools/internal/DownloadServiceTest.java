@@ -1,8 +1,10 @@
 package com.checkmarx.jenkins.unit.tools.internal;
 
+import com.checkmarx.jenkins.exception.ToolDetectionException;
 import com.checkmarx.jenkins.tools.CheckmarxInstaller;
 import com.checkmarx.jenkins.tools.Platform;
 import com.checkmarx.jenkins.tools.internal.DownloadService;
+import net.sf.json.JSONObject;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -82,4 +84,31 @@ public class DownloadServiceTest {
         assertNotNull(actualUrl);
     }
 
-} 
\ No newline at end of file
+    @Test
+    public void testFindChecksum_withListedFile_ExpectChecksum() {
+        String checksums = "ABC123  ast-cli_2.3.9_darwin_x64.tar.gz\n"
+                + "def456  ast-cli_2.3.9_linux_x64.tar.gz\n";
+
+        assertEquals("abc123", DownloadService.findChecksum(checksums, "ast-cli_2.3.9_darwin_x64.tar.gz"));
+        assertEquals("def456", DownloadService.findChecksum(checksums, "ast-cli_2.3.9_linux_x64.tar.gz"));
+    }
+
+    @Test
+    public void testFindChecksum_withUnlistedFile_ExpectNull() {
+        assertNull(DownloadService.findChecksum("def456  ast-cli_2.3.9_linux_x64.tar.gz", "ast-cli_2.3.9_windows_x64.zip"));
+    }
+
+    @Test(expected = ToolDetectionException.class)
+    public void testCheckAssetPublished_withMissingPlatform_ExpectException() throws ToolDetectionException {
+        JSONObject release = JSONObject.fromObject("{\"tag_name\":\"2.3.9\",\"assets\":[{\"name\":\"ast-cli_2.3.9_linux_x64.tar.gz\"}]}");
+
+        DownloadService.checkAssetPublished(release, "ast-cli_2.3.9_linux_arm64.tar.gz");
+    }
+
+    @Test
+    public void testCheckAssetPublished_withListedPlatform_ExpectNoException() throws ToolDetectionException {
+        JSONObject release = JSONObject.fromObject("{\"tag_name\":\"2.3.9\",\"assets\":[{\"name\":\"ast-cli_2.3.9_linux_arm64.tar.gz\"}]}");
+
+        DownloadService.checkAssetPublished(release, "ast-cli_2.3.9_linux_arm64.tar.gz");
+    }
+}
@@ -0,0 +1,51 @@
+package com.checkmarx.jenkins.unit.tools.internal;
+
+import com.checkmarx.jenkins.exception.ToolDetectionException;
+import com.checkmarx.jenkins.tools.internal.MirrorSource;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MirrorSourceTest {
+
+    private static final String FILE_NAME = "ast-cli_2.0.0_linux_x64.tar.gz";
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testHttpMirror_withListedArchive_ExpectUrlAndChecksumFromIndex() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"versions\":{\"2.0.0\":{\"" + FILE_NAME + "\":\"ABC123\"}}}"));
+        MirrorSource mirror = new MirrorSource(server.url("/cli/").toString());
+
+        assertTrue(mirror.isHttp());
+        assertNull(mirror.getLocalArchive("2.0.0", FILE_NAME));
+        assertEquals(server.url("/cli/2.0.0/" + FILE_NAME).url(), mirror.getDownloadUrl("2.0.0", FILE_NAME));
+        assertEquals("abc123", mirror.getChecksum("2.0.0", FILE_NAME, null));
+        assertEquals("/cli/index.json", server.takeRequest().getPath());
+    }
+
+    @Test(expected = ToolDetectionException.class)
+    public void testHttpMirror_withMissingVersion_ExpectException() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"versions\":{\"1.0.0\":{}}}"));
+        MirrorSource mirror = new MirrorSource(server.url("/missing").toString());
+
+        mirror.getChecksum("2.0.0", FILE_NAME, null);
+    }
+}
@@ -89,4 +89,30 @@ public class ProxyHttpClientTest {
     public void testGetHttpClientWithMalformedProxyUrl() throws URISyntaxException, CheckmarxException {
         proxyHttpClient.getHttpClient("http://proxy.example.com:80:80/invalid-///path", 1000, 1000);
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testGetHttpClient_withSameSettings_ExpectSharedClient() throws URISyntaxException, CheckmarxException {
+        OkHttpClient client = proxyHttpClient.getHttpClient("http://proxy.example.com:8080", 1000, 1000);
+        OkHttpClient other = new ProxyHttpClient().getHttpClient("http://proxy.example.com:8080", 1000, 1000);
+
+        assertSame(client, other);
+    }
+
+    @Test
+    public void testGetHttpClient_withDifferentSettings_ExpectSharedConnectionPool() throws URISyntaxException, CheckmarxException {
+        OkHttpClient client = proxyHttpClient.getHttpClient(null, 1000, 1000);
+        OkHttpClient other = proxyHttpClient.getHttpClient("http://proxy.example.com:8080", 2000, 2000);
+
+        assertNotSame(client, other);
+        assertSame(client.connectionPool(), other.connectionPool());
+        assertSame(client.dispatcher(), other.dispatcher());
+    }
+
+    @Test
+    public void testInvalidate_ExpectNewClient() throws URISyntaxException, CheckmarxException {
+        OkHttpClient client = proxyHttpClient.getHttpClient(null, 1000, 1000);
+        ProxyHttpClient.invalidate();
+
+        assertNotSame(client, proxyHttpClient.getHttpClient(null, 1000, 1000));
+    }
+}
@@ -0,0 +1,109 @@
+package com.checkmarx.jenkins.unit.tools.internal;
+
+import com.checkmarx.jenkins.tools.internal.ReleaseMetadataCache;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ReleaseMetadataCacheTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testFetch_withinTtl_ExpectSingleRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"tag_name\":\"2.0.0\"}").setHeader("ETag", "\"v1\""));
+        ReleaseMetadataCache cache = new ReleaseMetadataCache(null, 60000);
+        String url = server.url("/releases/tags/2.0.0").toString();
+
+        assertEquals("{\"tag_name\":\"2.0.0\"}", cache.fetch(url, null));
+        assertEquals("{\"tag_name\":\"2.0.0\"}", cache.fetch(url, null));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testFetch_withExpiredEntry_ExpectConditionalRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody("metadata").setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        ReleaseMetadataCache cache = new ReleaseMetadataCache(null, 0);
+        String url = server.url("/releases/tags/2.0.0").toString();
+
+        cache.fetch(url, null);
+        assertEquals("metadata", cache.fetch(url, null));
+
+        server.takeRequest();
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void testFetch_withServerError_ExpectLastKnownGoodData() throws Exception {
+        server.enqueue(new MockResponse().setBody("metadata"));
+        server.enqueue(new MockResponse().setResponseCode(403));
+        ReleaseMetadataCache cache = new ReleaseMetadataCache(null, 0);
+        String url = server.url("/releases/tags/2.0.0").toString();
+
+        cache.fetch(url, null);
+        assertEquals("metadata", cache.fetch(url, null));
+    }
+
+    @Test(expected = IOException.class)
+    public void testFetch_withServerErrorAndNothingCached_ExpectException() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        ReleaseMetadataCache cache = new ReleaseMetadataCache(null, 0);
+
+        cache.fetch(server.url("/releases/tags/2.0.0").toString(), null);
+    }
+
+    @Test
+    public void testFetch_withNotFoundWithinTtl_ExpectSingleRequest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        ReleaseMetadataCache cache = new ReleaseMetadataCache(null, 60000);
+        String url = server.url("/download/2.0.0/ast-cli_2.0.0_checksums.txt").toString();
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.fetch(url, null);
+                fail("Expected the URL not to be found");
+            } catch (FileNotFoundException e) {
+                assertTrue(e.getMessage().contains(url));
+            }
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testFetch_withNotFoundAfterTtl_ExpectRequestedAgain() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("checksums"));
+        ReleaseMetadataCache cache = new ReleaseMetadataCache(null, 0);
+        String url = server.url("/download/2.0.0/ast-cli_2.0.0_checksums.txt").toString();
+
+        try {
+            cache.fetch(url, null);
+            fail("Expected the URL not to be found");
+        } catch (FileNotFoundException e) {
+            // cached until the TTL expires
+        }
+        assertEquals("checksums", cache.fetch(url, null));
+        assertEquals(2, server.getRequestCount());
+    }
+}